@@ -0,0 +1,18 @@
+#!/usr/bin/env sh
+# Runs the solver benchmarks with fixed settings and stores a CSV report under baseline/.
+# Usage: ./run-baseline.sh [extra JMH args]   e.g. ./run-baseline.sh -p subtasks=100,1000
+# Compare two reports: java -cp target/benchmarks.jar simon.klausurcraft.bench.CompareBaseline old.csv new.csv
+set -e
+cd "$(dirname "$0")"
+
+mvn -B -q -f ../demo/pom.xml install -DskipTests
+mvn -B -q package
+
+rev=$(git rev-parse --short HEAD 2>/dev/null || echo local)
+out="baseline/$(date +%Y%m%d)-$rev.csv"
+mkdir -p baseline
+
+java -jar target/benchmarks.jar PointCombinationBenchmark \
+    -prof gc -rf csv -rff "$out" "$@"
+
+echo "Report written to $out"
@@ -0,0 +1,18 @@
+#!/usr/bin/env sh
+# Runs the pool scaling benchmarks (latency percentiles, peak heap) and stores a CSV report under baseline/.
+# Usage: ./run-scaling.sh [extra JMH args]   e.g. ./run-scaling.sh -p scale=1,10
+# Compare two reports: java -cp target/benchmarks.jar simon.klausurcraft.bench.CompareBaseline old.csv new.csv
+set -e
+cd "$(dirname "$0")"
+
+mvn -B -q -f ../demo/pom.xml install -DskipTests
+mvn -B -q package
+
+rev=$(git rev-parse --short HEAD 2>/dev/null || echo local)
+out="baseline/$(date +%Y%m%d)-$rev-scaling.csv"
+mkdir -p baseline
+
+java -jar target/benchmarks.jar PoolScaleBenchmark \
+    -prof simon.klausurcraft.bench.PeakHeapProfiler -rf csv -rff "$out" "$@"
+
+echo "Report written to $out"
@@ -0,0 +1,85 @@
+package simon.klausurcraft.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH CSV reports (-rf csv) row by row.
+ * Usage: CompareBaseline baseline.csv current.csv [threshold%, default 10]
+ * Prints the score ratio per benchmark and parameter set and flags changes beyond the threshold.
+ * Exits with 1 if any primary row (ops/s, or time per op in sample/average mode) got slower than the threshold.
+ */
+public final class CompareBaseline {
+
+    private CompareBaseline() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareBaseline <baseline.csv> <current.csv> [threshold%]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, Row> base = read(Path.of(args[0]));
+        Map<String, Row> current = read(Path.of(args[1]));
+
+        boolean regression = false;
+        for (Map.Entry<String, Row> e : current.entrySet()) {
+            Row before = base.get(e.getKey());
+            Row now = e.getValue();
+            if (before == null) {
+                System.out.printf("%-100s %14.3f %s  (new)%n", e.getKey(), now.score, now.unit);
+                continue;
+            }
+            double ratio = now.score / before.score;
+            // ops/s: higher is better; time per op and secondary rows (percentiles, gc alloc rate, peak heap, ...) lower is better
+            boolean higherIsBetter = now.unit.equals("ops/s");
+            boolean primary = !e.getKey().contains(":");
+            double change = higherIsBetter ? ratio - 1 : 1 - ratio;
+            String flag = change < -threshold ? "  SLOWER" : change > threshold ? "  faster" : "";
+            if (change < -threshold && primary) regression = true;
+            System.out.printf("%-100s %14.3f -> %14.3f %s  x%.2f%s%n",
+                    e.getKey(), before.score, now.score, now.unit, ratio, flag);
+        }
+        System.exit(regression ? 1 : 0);
+    }
+
+    private record Row(double score, String unit) {}
+
+    private static Map<String, Row> read(Path csv) throws IOException {
+        List<String> lines = Files.readAllLines(csv);
+        List<String> header = split(lines.get(0));
+        int benchmark = header.indexOf("Benchmark");
+        int score = header.indexOf("Score"), unit = header.indexOf("Unit");
+        Map<String, Row> out = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) continue;
+            List<String> cols = split(line);
+            StringBuilder key = new StringBuilder(cols.get(benchmark).replace("simon.klausurcraft.bench.", ""));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ")) key.append(' ').append(header.get(i).substring(7)).append('=').append(cols.get(i));
+            }
+            if (cols.get(score).isBlank() || cols.get(score).equals("NaN")) continue;
+            out.put(key.toString(), new Row(Double.parseDouble(cols.get(score)), cols.get(unit)));
+        }
+        return out;
+    }
+
+    /** Minimal CSV split for JMH output (quoted fields, no embedded quotes). */
+    private static List<String> split(String line) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"') quoted = !quoted;
+            else if (c == ',' && !quoted) { out.add(cur.toString()); cur.setLength(0); }
+            else cur.append(c);
+        }
+        out.add(cur.toString());
+        return out;
+    }
+}
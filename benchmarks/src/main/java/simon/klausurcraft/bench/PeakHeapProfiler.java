@@ -0,0 +1,48 @@
+package simon.klausurcraft.bench;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JMH profiler reporting the peak heap of each iteration ({@code ·peak.heap}, MB): the sum of the peak
+ * usage of all heap pools, which is an upper bound because the pools may peak at different times.
+ * Use with {@code -prof simon.klausurcraft.bench.PeakHeapProfiler}.
+ */
+public final class PeakHeapProfiler implements InternalProfiler {
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP && p.isValid())
+                .toList();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Peak heap usage per iteration";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        System.gc(); // otherwise garbage of the previous iteration counts towards this peak
+        for (MemoryPoolMXBean p : heapPools()) p.resetPeakUsage();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        long peak = 0;
+        for (MemoryPoolMXBean p : heapPools()) peak += p.getPeakUsage().getUsed();
+        return List.of(new ScalarResult("·peak.heap", peak / (1024.0 * 1024.0), "MB", AggregationPolicy.MAX));
+    }
+}
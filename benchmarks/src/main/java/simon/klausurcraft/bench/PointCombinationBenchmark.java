@@ -0,0 +1,78 @@
+package simon.klausurcraft.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import simon.klausurcraft.model.GenerateScope;
+import simon.klausurcraft.model.SubtaskModel;
+import simon.klausurcraft.model.TaskModel;
+import simon.klausurcraft.services.PointCombination;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the point-sum solver on synthetic pools.
+ * "cold" variants rebuild the DP table every call, "cached"/"warm" ones reuse it.
+ * Run with {@code -prof gc} for allocation rates (see benchmarks/README.md).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class PointCombinationBenchmark {
+
+    static final long SEED = 0x4B43L;
+    static final GenerateScope SCOPE = GenerateScope.EXAM;
+
+    @Param({"10", "30", "100", "300", "1000"})
+    int subtasks;
+
+    @Param({"1-5", "1-20"})
+    String points;
+
+    @Param({"BALANCED", "EASY_HEAVY", "HARD_SCARCE"})
+    SyntheticPool.Skew skew;
+
+    @Param({"BOTH", "MIXED"})
+    SyntheticPool.EligibilityMix eligibility;
+
+    TaskModel task;
+    List<SubtaskModel> eligible;
+    PointCombination.Feasibility feasibility;
+    BigDecimal target;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] range = SyntheticPool.range(points);
+        task = SyntheticPool.task("0001", subtasks, range[0], range[1], skew, eligibility, SEED);
+        eligible = task.getSubtasks().stream().filter(st -> st.isEligibleFor(SCOPE)).toList();
+        feasibility = PointCombination.feasibility(task, SCOPE);
+        List<BigDecimal> sums = feasibility.sums();
+        // middle of the achievable range: the hardest case for reconstruction
+        target = sums.isEmpty() ? BigDecimal.ZERO : sums.get(sums.size() / 2);
+    }
+
+    @Benchmark
+    public List<BigDecimal> achievableSumsCold() {
+        PointCombination.clearCache();
+        return PointCombination.achievablePointSums(task, SCOPE);
+    }
+
+    @Benchmark
+    public List<BigDecimal> achievableSumsCached() {
+        return PointCombination.achievablePointSums(task, SCOPE);
+    }
+
+    @Benchmark
+    public void pickCold(Blackhole bh) {
+        bh.consume(PointCombination.pickSubtasksWithDistribution(eligible, target));
+    }
+
+    @Benchmark
+    public void pickWarm(Blackhole bh) {
+        bh.consume(PointCombination.pickSubtasksWithDistribution(feasibility, target, PointCombination.DEFAULT_PICK_BUDGET));
+    }
+}
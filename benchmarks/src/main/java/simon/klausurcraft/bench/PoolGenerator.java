@@ -0,0 +1,142 @@
+package simon.klausurcraft.bench;
+
+import simon.klausurcraft.model.Difficulty;
+import simon.klausurcraft.model.Eligibility;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Writes seeded, schema-valid pool files of any size (tasks × subtasks × variants × text length),
+ * streamed straight to disk so even 100× pools need no models in memory.
+ * Usage: PoolGenerator out.xml tasks subtasks variants textLength [seed]
+ */
+public final class PoolGenerator {
+
+    private PoolGenerator() {}
+
+    /** Size of a generated pool; {@code textLength} is the length of each variant text (solutions are half as long). */
+    public record Shape(int tasks, int subtasks, int variants, int textLength) {
+
+        /** Reference pool: 50 tasks of 8 subtasks with 3 variants of 400 characters (about 1 MB). */
+        public static final Shape BASE = new Shape(50, 8, 3, 400);
+
+        /** {@code factor} times as many tasks. */
+        public Shape times(int factor) {
+            return new Shape(tasks * factor, subtasks, variants, textLength);
+        }
+    }
+
+    private static final String[] WORDS = {
+            "relation", "schema", "query", "index", "join", "tuple", "key", "normal", "form", "transaction",
+            "lock", "graph", "tree", "heap", "sort", "hash", "stack", "queue", "proof", "invariant",
+            "complexity", "recursion", "class", "object", "interface", "thread", "process", "memory", "cache",
+            "network", "packet", "router", "protocol", "compiler", "parser", "grammar", "automaton", "&", "<x>"
+    };
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Usage: PoolGenerator <out.xml> <tasks> <subtasks> <variants> <textLength> [seed]");
+            System.exit(2);
+        }
+        Shape shape = new Shape(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : PointCombinationBenchmark.SEED;
+        Path out = Path.of(args[0]);
+        write(out, shape, seed);
+        System.out.printf("Wrote %s: %s, %,d bytes%n", out, shape, Files.size(out));
+    }
+
+    /** Write a pool of {@code shape} to {@code file}; the same shape and seed always give the same bytes. */
+    public static void write(Path file, Shape shape, long seed) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            write(out, shape, seed);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void write(OutputStream out, Shape shape, long seed) throws XMLStreamException {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        SyntheticPool.Skew skew = SyntheticPool.Skew.BALANCED;
+        SyntheticPool.EligibilityMix mix = SyntheticPool.EligibilityMix.MIXED;
+        StringBuilder text = new StringBuilder(shape.textLength() + 16);
+
+        XMLStreamWriter w = XMLOutputFactory.newFactory().createXMLStreamWriter(out, "UTF-8");
+        w.writeStartDocument("UTF-8", "1.0");
+        w.writeCharacters("\n");
+        w.writeStartElement("tasks");
+        for (int t = 1; t <= shape.tasks(); t++) {
+            w.writeCharacters("\n  ");
+            w.writeStartElement("task");
+            w.writeAttribute("id", id(t));
+            w.writeAttribute("title", "Synthetic task " + t + " — " + words(rnd, text, 30));
+            for (int s = 1; s <= shape.subtasks(); s++) {
+                double d = rnd.nextDouble();
+                Difficulty difficulty = d < skew.easy ? Difficulty.EASY
+                        : d < skew.easy + skew.medium ? Difficulty.MEDIUM : Difficulty.HARD;
+                double e = rnd.nextDouble();
+                Eligibility eligibility = e < mix.both ? Eligibility.BOTH
+                        : e < mix.both + mix.examOnly ? Eligibility.EXAM : Eligibility.PRACTICE;
+                int points = rnd.nextInt(1, 9);
+
+                w.writeCharacters("\n    ");
+                w.writeStartElement("subtask");
+                w.writeAttribute("id", id(s));
+                w.writeAttribute("points", rnd.nextInt(5) == 0 ? points + ".5" : Integer.toString(points));
+                w.writeAttribute("difficulty", difficulty.toString());
+                w.writeAttribute("eligibility", eligibility.toString());
+                w.writeCharacters("\n      ");
+                w.writeStartElement("variants");
+                w.writeAttribute("group", "Part " + s);
+                for (int v = 1; v <= shape.variants(); v++) {
+                    w.writeCharacters("\n        ");
+                    w.writeStartElement("variant");
+                    w.writeAttribute("id", id(v));
+                    w.writeCharacters("\n          ");
+                    w.writeStartElement("text");
+                    w.writeCharacters(words(rnd, text, shape.textLength()));
+                    w.writeEndElement();
+                    w.writeCharacters("\n          ");
+                    w.writeStartElement("solution");
+                    w.writeCharacters(words(rnd, text, shape.textLength() / 2));
+                    w.writeEndElement();
+                    w.writeCharacters("\n        ");
+                    w.writeEndElement();
+                }
+                w.writeCharacters("\n      ");
+                w.writeEndElement();
+                w.writeCharacters("\n    ");
+                w.writeEndElement();
+            }
+            w.writeCharacters("\n  ");
+            w.writeEndElement();
+        }
+        w.writeCharacters("\n");
+        w.writeEndElement();
+        w.writeCharacters("\n");
+        w.writeEndDocument();
+        w.close();
+    }
+
+    private static String id(int n) {
+        return String.format("%04d", n);
+    }
+
+    /** Random words (including characters that need escaping) up to about {@code length} characters. */
+    private static String words(SplittableRandom rnd, StringBuilder sb, int length) {
+        sb.setLength(0);
+        while (sb.length() < length) {
+            if (!sb.isEmpty()) sb.append(' ');
+            sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
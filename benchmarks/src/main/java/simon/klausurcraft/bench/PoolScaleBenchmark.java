@@ -0,0 +1,176 @@
+package simon.klausurcraft.bench;
+
+import org.openjdk.jmh.annotations.*;
+import simon.klausurcraft.model.GenerateScope;
+import simon.klausurcraft.model.SubtaskModel;
+import simon.klausurcraft.model.TaskModel;
+import simon.klausurcraft.pdf.BatchExporter;
+import simon.klausurcraft.services.PointCombination;
+import simon.klausurcraft.services.XmlService;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end latency of load, save, point sums and PDF export on generated pools of 1×, 10× and
+ * 100× {@link PoolGenerator.Shape#BASE}. Sample mode reports percentiles (p0.50 … p1.00); run with
+ * {@code -prof simon.klausurcraft.bench.PeakHeapProfiler} for the peak heap per iteration
+ * (see benchmarks/README.md). A 100× operation takes seconds, so each iteration has only a few samples.
+ *
+ * This class holds the pool files only; the loaded pool lives in {@link Loaded}, which JMH creates for
+ * save, point sums and export but not for the load benchmarks, so it does not count towards their heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PoolScaleBenchmark {
+
+    static final GenerateScope SCOPE = GenerateScope.EXAM;
+
+    @Param({"1", "10", "100"})
+    int scale;
+
+    Path dir;
+    Path pool;   // read by the load benchmarks, copied for Loaded
+    Path xsd;
+    Path cacheDir;
+
+    /** Model thread of the services: edits and flushes run here, as on the FX thread in the app. */
+    ExecutorService model;
+
+    /** The pool loaded once for save, point sums and export. */
+    @State(Scope.Benchmark)
+    public static class Loaded {
+        ExecutorService model;
+        Path dir;
+        XmlService service;
+        List<TaskModel> tasks;
+        List<BatchExporter.Version> exam;
+        int saves;
+
+        @Setup(Level.Trial)
+        public void setUp(PoolScaleBenchmark files) throws Exception {
+            model = files.model;
+            dir = files.dir;
+            Path edited = Files.copy(files.pool, dir.resolve("edited.xml")); // rewritten by save
+            service = new XmlService(model, XmlService.DEFAULT_AUTOSAVE_IDLE);
+            service.setBackupCount(0);
+            tasks = model.submit(() -> service.load(edited, files.xsd).tasks()).get();
+
+            // one version with the first two subtasks of every task: the document grows with the pool
+            List<BatchExporter.TaskPlan> plans = new ArrayList<>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                TaskModel t = tasks.get(i);
+                List<SubtaskModel> fixed = t.getSubtasks().subList(0, Math.min(2, t.getSubtasks().size()));
+                plans.add(new BatchExporter.TaskPlan(i + 1, t, null, List.copyOf(fixed)));
+            }
+            exam = BatchExporter.plan(plans, 1, PointCombinationBenchmark.SEED);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            model.submit(service::close).get();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("klausurcraft-bench");
+        pool = dir.resolve("pool.xml");
+        PoolGenerator.write(pool, PoolGenerator.Shape.BASE.times(scale), PointCombinationBenchmark.SEED);
+        // the schema is a resource of the app jar; the loader needs a file
+        xsd = dir.resolve("exam-tasks.xsd");
+        try (InputStream in = XmlService.class.getResourceAsStream("/simon/klausurcraft/exam-tasks.xsd")) {
+            if (in == null) throw new IOException("exam-tasks.xsd not on the class path");
+            Files.copy(in, xsd);
+        }
+        cacheDir = dir.resolve("cache");
+        model = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "bench-model");
+            t.setDaemon(true);
+            return t;
+        });
+        XmlService warm = new XmlService(model, XmlService.DEFAULT_AUTOSAVE_IDLE);
+        warm.setSnapshotCacheDirectory(cacheDir);
+        warm.load(pool, xsd);
+        warm.close(); // waits for the snapshot to be written
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        model.shutdown();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    /** Parse and validate the XML (no snapshot cache). */
+    @Benchmark
+    public List<TaskModel> load() throws Exception {
+        XmlService s = new XmlService(model, XmlService.DEFAULT_AUTOSAVE_IDLE); // never edited, so no timed autosave
+        try {
+            return s.load(pool, xsd).tasks();
+        } finally {
+            s.close();
+        }
+    }
+
+    /** Reopen an unchanged pool from its binary snapshot. */
+    @Benchmark
+    public List<TaskModel> loadCached() throws Exception {
+        XmlService s = new XmlService(model, XmlService.DEFAULT_AUTOSAVE_IDLE);
+        s.setSnapshotCacheDirectory(cacheDir);
+        try {
+            return s.load(pool, xsd).tasks();
+        } finally {
+            s.close();
+        }
+    }
+
+    /** One edit, then a validated rewrite of the whole file. */
+    @Benchmark
+    public boolean save(Loaded l) throws Exception {
+        return l.model.submit(() -> {
+            TaskModel t = l.tasks.get(0);
+            t.setTitle("Saved " + (l.saves++)); // new content every time, so the write is not skipped
+            l.service.updateTaskTitle(t);
+            return l.service.flush();
+        }).get();
+    }
+
+    /** Achievable point sums of every task, without the table cache. */
+    @Benchmark
+    public int pointSums(Loaded l) {
+        PointCombination.clearCache();
+        int n = 0;
+        for (TaskModel t : l.tasks) {
+            List<BigDecimal> sums = PointCombination.achievablePointSums(t, SCOPE);
+            n += sums.size();
+        }
+        return n;
+    }
+
+    /** Exam PDF (without solutions) with two subtasks of every task. */
+    @Benchmark
+    public long pdf(Loaded l) throws Exception {
+        File out = l.dir.resolve("pdf").toFile();
+        BatchExporter.render(out, "Benchmark", LocalDate.of(2024, 1, 1), l.exam, PointCombinationBenchmark.SEED,
+                false, 1, (done, total) -> {});
+        return new File(out, "exam_1.pdf").length();
+    }
+}
@@ -0,0 +1,68 @@
+package simon.klausurcraft.bench;
+
+import simon.klausurcraft.model.Difficulty;
+import simon.klausurcraft.model.Eligibility;
+import simon.klausurcraft.model.SubtaskModel;
+import simon.klausurcraft.model.TaskModel;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded synthetic task pools for benchmarks. Models are detached (no DOM),
+ * which is all the solver needs; the same parameters always give the same pool.
+ */
+public final class SyntheticPool {
+
+    private SyntheticPool() {}
+
+    /** Share of easy / medium / hard subtasks. */
+    public enum Skew {
+        BALANCED(1 / 3.0, 1 / 3.0),
+        EASY_HEAVY(0.60, 0.25),
+        HARD_SCARCE(0.45, 0.45);
+
+        final double easy, medium;
+
+        Skew(double easy, double medium) {
+            this.easy = easy;
+            this.medium = medium;
+        }
+    }
+
+    /** How subtasks are spread over exam/practice eligibility. */
+    public enum EligibilityMix {
+        BOTH(1.0, 0.0),
+        MIXED(0.6, 0.2);
+
+        final double both, examOnly; // rest is practice-only
+
+        EligibilityMix(double both, double examOnly) {
+            this.both = both;
+            this.examOnly = examOnly;
+        }
+    }
+
+    /** Parse a point range like "1-20". */
+    public static int[] range(String s) {
+        String[] parts = s.split("-");
+        return new int[]{Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+    }
+
+    public static TaskModel task(String id, int subtasks, int minPoints, int maxPoints,
+                                 Skew skew, EligibilityMix mix, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        TaskModel task = new TaskModel(id, "Synthetic " + id);
+        for (int i = 0; i < subtasks; i++) {
+            double d = rnd.nextDouble();
+            Difficulty difficulty = d < skew.easy ? Difficulty.EASY
+                    : d < skew.easy + skew.medium ? Difficulty.MEDIUM : Difficulty.HARD;
+            double e = rnd.nextDouble();
+            Eligibility eligibility = e < mix.both ? Eligibility.BOTH
+                    : e < mix.both + mix.examOnly ? Eligibility.EXAM : Eligibility.PRACTICE;
+            BigDecimal points = BigDecimal.valueOf(rnd.nextInt(minPoints, maxPoints + 1));
+            task.getSubtasks().add(new SubtaskModel(task, String.format("%02d", i + 1), points, difficulty, eligibility));
+        }
+        return task;
+    }
+}
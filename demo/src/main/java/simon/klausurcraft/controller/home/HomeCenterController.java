@@ -30,97 +30,120 @@ public class HomeCenterController {
     public void render(List<TaskModel> tasks, String query, Set<Difficulty> allowed) {
         centerContainer.getChildren().clear();
         String q = query == null ? "" : query;
+        for (TaskModel t : tasks) centerContainer.getChildren().add(taskCard(t, q, allowed));
+    }
 
-        for (TaskModel t : tasks) {
-            boolean taskMatches = matchesTask(t, q);
+    /** Replace the card at {@code index} (same position as in the task list) without rendering the others. */
+    public void replaceTask(int index, TaskModel t) {
+        centerContainer.getChildren().set(index, taskCard(t, root.currentQuery(), root.allowedDifficulties()));
+    }
 
-            VBox taskCard = makeCard();
-            taskCard.setUserData(formatTaskTitle(t));
+    public void insertTask(int index, TaskModel t) {
+        centerContainer.getChildren().add(index, taskCard(t, root.currentQuery(), root.allowedDifficulties()));
+    }
 
-            // Header row with title + actions
-            HBox headerRow = new HBox(8);
-            Label header = new Label("Task " + t.getId() + " — " + t.getTitle());
-            header.getStyleClass().add("header");
+    public void removeTask(int index) {
+        centerContainer.getChildren().remove(index);
+    }
 
-            Region spacer = new Region();
-            HBox.setHgrow(spacer, Priority.ALWAYS);
+    /** Number of rendered task cards (one per task of the list passed to {@link #render}). */
+    public int renderedTaskCount() {
+        return centerContainer.getChildren().size();
+    }
 
-            Button btnEdit = new Button("Edit");
-            btnEdit.getStyleClass().add("chip");
-            btnEdit.setOnAction(e -> HomeTaskSheet.openEdit(root, t));
+    private VBox taskCard(TaskModel t, String query, Set<Difficulty> allowed) {
+        String q = query == null ? "" : query;
+        boolean taskMatches = matchesTask(t, q);
 
-            Button btnAddSub = new Button("+Subtask");
-            btnAddSub.getStyleClass().add("chip");
-            btnAddSub.setOnAction(e -> {
-                root.getXmlService().addSubtask(t).ifPresent(newSub -> {
-                    root.centerController.render(root.getTasks(), root.currentQuery(), root.allowedDifficulties());
-                    HomeSubtaskSheet.open(root, t, newSub);
-                });
-            });
+        VBox taskCard = makeCard();
+        taskCard.setUserData(formatTaskTitle(t));
 
-            Button btnDeleteTask = new Button("Delete");
-            btnDeleteTask.getStyleClass().add("chip");
-            btnDeleteTask.setOnAction(e -> tryDeleteTask(t));
+        // Header row with title + actions
+        HBox headerRow = new HBox(8);
+        Label header = new Label("Task " + t.getId() + " — " + t.getTitle());
+        header.getStyleClass().add("header");
+        if (root.getXmlService().getFiles().size() > 1) {
+            root.getXmlService().sourceOf(t).ifPresent(src -> header.setTooltip(new Tooltip(src.getFileName().toString())));
+        }
 
-            headerRow.getChildren().addAll(header, spacer, btnAddSub, btnEdit, btnDeleteTask);
-            taskCard.getChildren().add(headerRow);
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
 
-            // Context menu on task card (right-click)
-            ContextMenu taskMenu = new ContextMenu();
-            MenuItem miEdit = new MenuItem("Edit task…");
-            miEdit.setOnAction(e -> HomeTaskSheet.openEdit(root, t));
-            MenuItem miAdd = new MenuItem("Add subtask");
-            miAdd.setOnAction(e -> {
-                root.getXmlService().addSubtask(t);
+        Button btnEdit = new Button("Edit");
+        btnEdit.getStyleClass().add("chip");
+        btnEdit.setOnAction(e -> HomeTaskSheet.openEdit(root, t));
+
+        Button btnAddSub = new Button("+Subtask");
+        btnAddSub.getStyleClass().add("chip");
+        btnAddSub.setOnAction(e -> {
+            root.getXmlService().addSubtask(t).ifPresent(newSub -> {
                 root.centerController.render(root.getTasks(), root.currentQuery(), root.allowedDifficulties());
+                HomeSubtaskSheet.open(root, t, newSub);
             });
-            MenuItem miDel = new MenuItem("Delete task");
-            miDel.setOnAction(e -> tryDeleteTask(t));
-            taskMenu.getItems().addAll(miEdit, miAdd, new SeparatorMenuItem(), miDel);
-            taskCard.setOnContextMenuRequested((ContextMenuEvent ev) -> taskMenu.show(taskCard, ev.getScreenX(), ev.getScreenY()));
-
-            for (SubtaskModel st : t.getSubtasks()) {
-                if (!allowed.contains(st.getDifficulty())) continue;
-                boolean subMatches = taskMatches || matchesSubtask(st, q);
-                if (!subMatches && !q.isEmpty()) continue;
-
-                String subName = root.getXmlService().readSubtaskGroup(st);
-                if (subName == null || subName.isBlank()) {
-                    subName = "Subtask " + t.getId() + "." + st.getId();
-                }
+        });
 
-                HBox row = new HBox(10);
-                row.setPadding(new Insets(6, 0, 6, 0));
+        Button btnDeleteTask = new Button("Delete");
+        btnDeleteTask.getStyleClass().add("chip");
+        btnDeleteTask.setOnAction(e -> tryDeleteTask(t));
+
+        headerRow.getChildren().addAll(header, spacer, btnAddSub, btnEdit, btnDeleteTask);
+        taskCard.getChildren().add(headerRow);
+
+        // Context menu on task card (right-click)
+        ContextMenu taskMenu = new ContextMenu();
+        MenuItem miEdit = new MenuItem("Edit task…");
+        miEdit.setOnAction(e -> HomeTaskSheet.openEdit(root, t));
+        MenuItem miAdd = new MenuItem("Add subtask");
+        miAdd.setOnAction(e -> {
+            root.getXmlService().addSubtask(t);
+            root.centerController.render(root.getTasks(), root.currentQuery(), root.allowedDifficulties());
+        });
+        MenuItem miDel = new MenuItem("Delete task");
+        miDel.setOnAction(e -> tryDeleteTask(t));
+        taskMenu.getItems().addAll(miEdit, miAdd, new SeparatorMenuItem(), miDel);
+        taskCard.setOnContextMenuRequested((ContextMenuEvent ev) -> taskMenu.show(taskCard, ev.getScreenX(), ev.getScreenY()));
+
+        for (SubtaskModel st : t.getSubtasks()) {
+            if (!allowed.contains(st.getDifficulty())) continue;
+            boolean subMatches = taskMatches || matchesSubtask(st, q);
+            if (!subMatches && !q.isEmpty()) continue;
+
+            String subName = st.getGroup();
+            if (subName.isBlank()) {
+                subName = "Subtask " + t.getId() + "." + st.getId();
+            }
 
-                Label lblTitle = new Label(subName);
-                lblTitle.getStyleClass().add("muted");
+            HBox row = new HBox(10);
+            row.setPadding(new Insets(6, 0, 6, 0));
 
-                Label bPts  = badge(st.getPoints().stripTrailingZeros().toPlainString() + " pts");
-                Label bDiff = badgeForDifficulty(st.getDifficulty());
-                Label bElig = badgeForEligibility(st.getEligibility());
+            Label lblTitle = new Label(subName);
+            lblTitle.getStyleClass().add("muted");
 
-                Region spacer2 = new Region();
-                HBox.setHgrow(spacer2, Priority.ALWAYS);
+            Label bPts  = badge(st.getPoints().stripTrailingZeros().toPlainString() + " pts");
+            Label bDiff = badgeForDifficulty(st.getDifficulty());
+            Label bElig = badgeForEligibility(st.getEligibility());
 
-                Button btnOpen = new Button("Details");
-                btnOpen.getStyleClass().add("chip");
-                btnOpen.setOnAction(e -> HomeSubtaskSheet.open(root, t, st));
+            Region spacer2 = new Region();
+            HBox.setHgrow(spacer2, Priority.ALWAYS);
 
-                // Context menu on subtask row
-                ContextMenu subMenu = new ContextMenu();
-                MenuItem miOpen = new MenuItem("Open details");
-                miOpen.setOnAction(e -> HomeSubtaskSheet.open(root, t, st));
-                MenuItem miDelete = new MenuItem("Delete subtask");
-                miDelete.setOnAction(e -> tryDeleteSubtask(t, st));
-                subMenu.getItems().addAll(miOpen, new SeparatorMenuItem(), miDelete);
-                row.setOnContextMenuRequested(ev -> subMenu.show(row, ev.getScreenX(), ev.getScreenY()));
+            Button btnOpen = new Button("Details");
+            btnOpen.getStyleClass().add("chip");
+            btnOpen.setOnAction(e -> HomeSubtaskSheet.open(root, t, st));
 
-                row.getChildren().addAll(lblTitle, bPts, bDiff, bElig, spacer2, btnOpen);
-                taskCard.getChildren().add(row);
-            }
+            // Context menu on subtask row
+            ContextMenu subMenu = new ContextMenu();
+            MenuItem miOpen = new MenuItem("Open details");
+            miOpen.setOnAction(e -> HomeSubtaskSheet.open(root, t, st));
+            MenuItem miDelete = new MenuItem("Delete subtask");
+            miDelete.setOnAction(e -> tryDeleteSubtask(t, st));
+            subMenu.getItems().addAll(miOpen, new SeparatorMenuItem(), miDelete);
+            row.setOnContextMenuRequested(ev -> subMenu.show(row, ev.getScreenX(), ev.getScreenY()));
 
-            centerContainer.getChildren().add(taskCard);
+            row.getChildren().addAll(lblTitle, bPts, bDiff, bElig, spacer2, btnOpen);
+            taskCard.getChildren().add(row);
         }
+
+        return taskCard;
     }
 
     private void tryDeleteTask(TaskModel t) {
@@ -216,11 +239,10 @@ public class HomeCenterController {
     private boolean matchesSubtask(SubtaskModel st, String q) {
         if (q.isEmpty()) return true;
         if (st.getId().toLowerCase().contains(q)) return true;
+        if (st.getGroup().toLowerCase().contains(q)) return true;
         return st.getVariants().stream().anyMatch(v ->
             (v.getText() != null && v.getText().toLowerCase().contains(q)) ||
-            (v.getSolution() != null && v.getSolution().toLowerCase().contains(q)) ||
-            (root.getXmlService().readSubtaskGroup(st) != null &&
-             root.getXmlService().readSubtaskGroup(st).toLowerCase().contains(q))
+            (v.getSolution() != null && v.getSolution().toLowerCase().contains(q))
         );
     }
 
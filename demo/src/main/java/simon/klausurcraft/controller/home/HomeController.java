@@ -4,19 +4,28 @@ import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ToggleButton;
+import javafx.scene.control.Tooltip;
 import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Window;
+import javafx.stage.WindowEvent;
 import simon.klausurcraft.App;
 import simon.klausurcraft.controller.common.SlideOverPane;
 import simon.klausurcraft.model.Difficulty;
 import simon.klausurcraft.model.GenerateScope;
 import simon.klausurcraft.model.TaskModel;
+import simon.klausurcraft.services.AutosaveScheduler;
+import simon.klausurcraft.services.XmlService;
 import simon.klausurcraft.utils.ThemeManager;
 
 import java.time.LocalDate;
@@ -34,6 +43,12 @@ public class HomeController {
     @FXML private Button themeToggle;      // icon-only theme toggle (changed from ToggleButton)
     @FXML private Label fileLabel;
     @FXML private Label countsLabel;
+    @FXML private Label saveStateLabel;
+    private final Tooltip saveStateTip = new Tooltip("No saves yet");
+    @FXML private HBox loadBox;             // progress of a background load, hidden otherwise
+    @FXML private ProgressBar loadProgress;
+    @FXML private Label loadLabel;
+    @FXML private Button btnCancelLoad;
     @FXML private Button btnGenerateBottom; // generate button in status bar
     @FXML private Button btnAddTask;        // + Task button in status bar
 
@@ -42,10 +57,11 @@ public class HomeController {
     private SlideOverPane slideOver;
 
     // Models / Services
-    private final simon.klausurcraft.services.XmlService xmlService = new simon.klausurcraft.services.XmlService();
+    private final XmlService xmlService = new XmlService(Platform::runLater, XmlService.DEFAULT_AUTOSAVE_IDLE);
     private final ObservableList<TaskModel> tasks = FXCollections.observableArrayList();
 
     // State / binding
+    boolean renderingSuspended; // true while HomeExternalChanges updates single task cards
     private final StringProperty loadedFileName = new SimpleStringProperty("No file loaded");
     private final IntegerProperty taskCount = new SimpleIntegerProperty(0);
     private final IntegerProperty subtaskCount = new SimpleIntegerProperty(0);
@@ -56,7 +72,7 @@ public class HomeController {
     final ObjectProperty<LocalDate> examDate = new SimpleObjectProperty<>(LocalDate.now());
     final BooleanProperty withSampleSolution = new SimpleBooleanProperty(false);
 
-    public simon.klausurcraft.services.XmlService getXmlService() { return xmlService; }
+    public XmlService getXmlService() { return xmlService; }
     public ObservableList<TaskModel> getTasks() { return tasks; }
     public SlideOverPane getSlideOver() { return slideOver; }
     public Window getWindow() { return App.getScene().getWindow(); }
@@ -69,9 +85,14 @@ public class HomeController {
         rootStack.setMouseTransparent(true);
         slideOver.hideInstant();
 
+        xmlService.setSnapshotCacheDirectory(XmlService.defaultSnapshotCacheDirectory());
+
         // Bind status bar
         fileLabel.textProperty().bind(loadedFileName);
         countsLabel.textProperty().bind(taskCount.asString().concat(" / ").concat(subtaskCount.asString()));
+        xmlService.setSaveStateListener(s -> Platform.runLater(() -> showSaveState(s)));
+        saveStateLabel.setTooltip(saveStateTip);
+        HomeExternalChanges.install(this);
 
         // Icon-only theme toggle -> ThemeManager.toggle
         if (themeToggle != null) {
@@ -108,11 +129,19 @@ public class HomeController {
                         ev.consume();
                     }
                 });
+                // Ctrl+S writes pending changes right away
+                newScene.getAccelerators().put(
+                    new KeyCodeCombination(KeyCode.S, KeyCombination.SHORTCUT_DOWN), this::saveNow);
+                // closing the window must not lose the last debounced edits
+                newScene.windowProperty().addListener((o, ow, w) -> {
+                    if (w != null) w.addEventHandler(WindowEvent.WINDOW_HIDDEN, e -> xmlService.close());
+                });
             }
         });
 
         // React to task list changes
         tasks.addListener((javafx.collections.ListChangeListener<? super TaskModel>) c -> {
+            if (renderingSuspended) return;
             updateCounts();
             rebuildToc();
             centerController.render(tasks, currentQuery(), allowedDifficulties());
@@ -122,6 +151,33 @@ public class HomeController {
         Platform.runLater(() -> HomeFileController.autoLoadLastFile(this));
     }
 
+    void saveNow() {
+        if (!xmlService.hasUnsavedChanges()) return;
+        if (!xmlService.flush()) HomeNotifications.showError("Saving failed. Changes are kept and saved with the next edit.");
+    }
+
+    /** Show the progress of {@code load} in the status bar, or hide it (null). */
+    void showLoading(Task<?> load) {
+        loadProgress.progressProperty().unbind();
+        loadLabel.textProperty().unbind();
+        loadBox.setVisible(load != null);
+        loadBox.setManaged(load != null);
+        if (load == null) return;
+        loadProgress.progressProperty().bind(load.progressProperty());
+        loadLabel.textProperty().bind(load.messageProperty());
+        btnCancelLoad.setOnAction(e -> load.cancel(true));
+    }
+
+    private void showSaveState(AutosaveScheduler.State state) {
+        saveStateTip.setText(xmlService.getSaveMetrics().stats().toString());
+        saveStateLabel.setText(switch (state) {
+            case PENDING -> "Unsaved changes";
+            case SAVING -> "Saving…";
+            case SAVED -> "All changes saved";
+            case FAILED -> "Save failed";
+        });
+    }
+
     void updateCounts() {
         int t = tasks.size();
         int s = tasks.stream().mapToInt(task -> task.getSubtasks().size()).sum();
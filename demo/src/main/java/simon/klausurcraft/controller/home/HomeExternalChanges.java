@@ -0,0 +1,100 @@
+package simon.klausurcraft.controller.home;
+
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
+import simon.klausurcraft.model.TaskModel;
+import simon.klausurcraft.services.XmlService;
+import simon.klausurcraft.utils.UiUtil;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/** Applies changes other programs made to the pool files: only the changed task cards are rebuilt. */
+final class HomeExternalChanges {
+
+    private static final ButtonType KEEP_MINE = new ButtonType("Keep mine", ButtonBar.ButtonData.CANCEL_CLOSE);
+    private static final ButtonType USE_FILE = new ButtonType("Use file version", ButtonBar.ButtonData.OK_DONE);
+
+    private HomeExternalChanges() {}
+
+    static void install(HomeController root) {
+        root.getXmlService().setExternalChangeListener(new XmlService.ExternalChangeListener() {
+            @Override public void changed(XmlService.ExternalChange change) {
+                if (!change.applied().isEmpty()) {
+                    apply(root, change.applied());
+                    HomeNotifications.showInfo(change.file().getFileName() + " was changed on disk: "
+                            + change.applied().size() + " task(s) updated");
+                }
+                for (XmlService.Replacement r : change.conflicts()) resolve(root, r);
+            }
+
+            @Override public void failed(Path file, Exception error) {
+                HomeNotifications.showError(file.getFileName() + " was changed on disk but cannot be loaded. "
+                        + HomeFileController.englishXmlError(error));
+            }
+        });
+    }
+
+    private static void resolve(HomeController root, XmlService.Replacement r) {
+        TaskModel t = r.before() != null ? r.before() : r.after();
+        Alert a = new Alert(Alert.AlertType.CONFIRMATION, "", USE_FILE, KEEP_MINE);
+        a.setTitle("Conflicting change");
+        a.setHeaderText("Task " + t.getId() + " was changed both here and in " + r.file().getFileName());
+        a.setContentText(r.after() == null
+                ? "The file no longer contains this task. Keep your version or remove it?"
+                : "Keep your version (it overwrites the file on the next save) or use the version from the file?");
+        a.initOwner(root.getWindow());
+        UiUtil.applyCurrentStyles(a);
+        if (a.showAndWait().orElse(KEEP_MINE) == USE_FILE && root.getXmlService().acceptExternal(r)) {
+            apply(root, List.of(r));
+        } else {
+            root.getXmlService().keepLocal(r);
+        }
+    }
+
+    /** Mirror the replacements in the task list and the center view without a full re-render. */
+    private static void apply(HomeController root, List<XmlService.Replacement> changes) {
+        if (changes.isEmpty()) return;
+        if (root.getSlideOver().isShown()) { // its models may just have been replaced
+            root.getSlideOver().hide();
+            root.rootStack.setMouseTransparent(true);
+        }
+        List<TaskModel> tasks = root.getTasks();
+        boolean incremental = root.centerController.renderedTaskCount() == tasks.size();
+        root.renderingSuspended = true;
+        try {
+            for (XmlService.Replacement r : changes) {
+                int i = r.before() == null ? -1 : tasks.indexOf(r.before());
+                if (r.before() != null && i < 0) continue; // not shown
+                if (r.after() == null) {
+                    tasks.remove(i);
+                    if (incremental) root.centerController.removeTask(i);
+                } else if (r.before() != null) {
+                    tasks.set(i, r.after());
+                    if (incremental) root.centerController.replaceTask(i, r.after());
+                } else {
+                    int at = insertionIndex(root, r.after());
+                    tasks.add(at, r.after());
+                    if (incremental) root.centerController.insertTask(at, r.after());
+                }
+            }
+        } finally {
+            root.renderingSuspended = false;
+        }
+        root.updateCounts();
+        root.rebuildToc();
+        if (!incremental) root.centerController.render(tasks, root.currentQuery(), root.allowedDifficulties());
+    }
+
+    /** After the nearest task that precedes {@code added} in the pool and is in the list. */
+    private static int insertionIndex(HomeController root, TaskModel added) {
+        List<TaskModel> pool = root.getXmlService().getTasks();
+        List<TaskModel> tasks = root.getTasks();
+        for (int j = pool.indexOf(added) - 1; j >= 0; j--) {
+            int i = tasks.indexOf(pool.get(j));
+            if (i >= 0) return i + 1;
+        }
+        return pool.indexOf(added) < 0 ? tasks.size() : 0;
+    }
+}
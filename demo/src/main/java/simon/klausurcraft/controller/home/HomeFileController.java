@@ -1,5 +1,7 @@
 package simon.klausurcraft.controller.home;
 
+import javafx.concurrent.Task;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import org.xml.sax.SAXParseException;
 import simon.klausurcraft.services.XmlService;
@@ -11,9 +13,18 @@ import java.util.prefs.Preferences;
 public final class HomeFileController {
 
     private static final String PREFS_NODE = "simon.klausurcraft";
-    private static final String PREF_LAST_FILE = "lastXmlFile";
+    private static final String PREF_LAST_FILE = "lastXmlFile"; // a pool file or directory
     private static final String PREF_LAST_DIR  = "lastXmlDir";
 
+    /** The load in progress (FX thread only); starting another one cancels it. */
+    private static Task<XmlService.ParsedPool> loading;
+
+    /** Parses a pool on the loading thread, reporting to {@code progress}. */
+    @FunctionalInterface
+    private interface PoolReader {
+        XmlService.ParsedPool read(XmlService.LoadProgress progress) throws Exception;
+    }
+
     private HomeFileController() {}
 
     public static void autoLoadLastFile(HomeController root) {
@@ -21,13 +32,8 @@ public final class HomeFileController {
         String last = p.get(PREF_LAST_FILE, null);
         if (last != null) {
             File f = new File(last);
-            if (f.exists() && f.isFile()) {
-                try {
-                    loadXmlFile(root, f);
-                } catch (Exception ex) {
-                    HomeNotifications.showError("Failed to load last file. " + englishXmlError(ex));
-                }
-            }
+            if (f.isDirectory()) loadXmlDirectory(root, f, "Failed to load last folder. ");
+            else if (f.isFile()) loadXmlFile(root, f, "Failed to load last file. ");
         }
     }
 
@@ -48,31 +54,102 @@ public final class HomeFileController {
         }
 
         File f = chooser.showOpenDialog(root.getWindow());
-        if (f != null) {
+        if (f != null) loadXmlFile(root, f, "Failed to load XML: ");
+    }
+
+    /** Open a directory whose *.xml files (e.g. one per chapter) form one pool. */
+    public static void chooseAndLoadDirectory(HomeController root) {
+        Preferences p = Preferences.userRoot().node(PREFS_NODE);
+
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Open pool folder");
+        String lastDir = p.get(PREF_LAST_DIR, null);
+        if (lastDir != null) {
+            File dir = new File(lastDir);
+            if (dir.isDirectory()) chooser.setInitialDirectory(dir);
+        }
+
+        File dir = chooser.showDialog(root.getWindow());
+        if (dir != null) loadXmlDirectory(root, dir, "Failed to load folder: ");
+    }
+
+    /** Load {@code f} in the background; the task list is replaced once it is parsed. */
+    public static void loadXmlFile(HomeController root, File f, String failurePrefix) {
+        load(root, f, failurePrefix, progress -> root.getXmlService().read(f.toPath(), schemaPath(), progress));
+    }
+
+    public static void loadXmlDirectory(HomeController root, File dir, String failurePrefix) {
+        load(root, dir, failurePrefix, progress -> root.getXmlService().readDirectory(dir.toPath(), schemaPath(), progress));
+    }
+
+    /**
+     * Parse on a virtual thread while the window stays usable; progress (bytes and tasks) goes to the
+     * status bar, whose cancel button interrupts the parse. The parsed pool is opened on the FX thread.
+     */
+    private static void load(HomeController root, File source, String failurePrefix, PoolReader reader) {
+        if (loading != null) loading.cancel(true);
+        Task<XmlService.ParsedPool> task = new Task<>() {
+            @Override protected XmlService.ParsedPool call() throws Exception {
+                return reader.read((bytesRead, totalBytes, tasksParsed) -> {
+                    updateProgress(bytesRead, totalBytes);
+                    updateMessage("Loading " + source.getName() + " … " + tasksParsed + " tasks");
+                });
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (loading != task) return; // superseded
+            finishLoading(root);
             try {
-                loadXmlFile(root, f);
-                p.put(PREF_LAST_FILE, f.getAbsolutePath());
-                p.put(PREF_LAST_DIR, f.getParentFile().getAbsolutePath());
+                XmlService.LoadResult result = root.getXmlService().open(task.getValue());
+                int files = root.getXmlService().getFiles().size();
+                root.getTasks().setAll(result.tasks());
+                if (source.isDirectory()) {
+                    root.loadedFileNameProperty().set(source.getName() + " (" + files + " files)");
+                    HomeNotifications.showInfo("Loaded " + files + " files from " + source.getName());
+                } else {
+                    root.loadedFileNameProperty().set(source.getName());
+                    HomeNotifications.showInfo("Loaded " + source.getName());
+                }
+                Preferences p = Preferences.userRoot().node(PREFS_NODE);
+                p.put(PREF_LAST_FILE, source.getAbsolutePath());
+                p.put(PREF_LAST_DIR, (source.isDirectory() ? source : source.getParentFile()).getAbsolutePath());
             } catch (Exception ex) {
-                HomeNotifications.showError("Failed to load XML: " + englishXmlError(ex));
+                HomeNotifications.showError(failurePrefix + englishXmlError(ex));
             }
-        }
+        });
+        task.setOnFailed(e -> {
+            if (loading != task) return;
+            finishLoading(root);
+            Throwable t = task.getException();
+            HomeNotifications.showError(failurePrefix + englishXmlError(t instanceof Exception ex ? ex : new Exception(t)));
+        });
+        task.setOnCancelled(e -> {
+            if (loading != task) return;
+            finishLoading(root);
+            HomeNotifications.showInfo("Loading cancelled");
+        });
+        loading = task;
+        root.showLoading(task);
+        Thread.ofVirtual().name("xml-load").start(task);
+    }
+
+    private static void finishLoading(HomeController root) {
+        loading = null;
+        root.showLoading(null);
     }
 
-    public static void loadXmlFile(HomeController root, File f) throws Exception {
-        Path xsd = Path.of(HomeController.class.getResource("/simon/klausurcraft/exam-tasks.xsd").toURI());
-        XmlService.LoadResult result = root.getXmlService().load(f.toPath(), xsd);
-        root.getTasks().setAll(result.tasks());
-        root.loadedFileNameProperty().set(f.getName());
-        HomeNotifications.showInfo("Loaded " + f.getName());
+    private static Path schemaPath() throws Exception {
+        return Path.of(HomeController.class.getResource("/simon/klausurcraft/exam-tasks.xsd").toURI());
     }
 
     /** Build a clear, English-only message for XML parse/validation errors. */
-    private static String englishXmlError(Exception ex) {
+    static String englishXmlError(Exception ex) {
         if (ex instanceof SAXParseException spe) {
             int line = spe.getLineNumber();
             int col  = spe.getColumnNumber();
-            return "Invalid XML (line " + line + ", column " + col + "). " +
+            String id = spe.getSystemId();
+            String file = id == null ? "" : id.substring(id.lastIndexOf('/') + 1) + ", ";
+            return "Invalid XML (" + file + "line " + line + ", column " + col + "). " +
                    "Please check for unescaped characters (e.g., use &amp; for '&').";
         }
         String msg = ex.getMessage();
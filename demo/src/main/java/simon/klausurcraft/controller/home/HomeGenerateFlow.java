@@ -2,7 +2,9 @@ package simon.klausurcraft.controller.home;
 
 import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
@@ -15,12 +17,22 @@ import simon.klausurcraft.App;
 import simon.klausurcraft.model.GenerateScope;
 import simon.klausurcraft.model.SubtaskModel;
 import simon.klausurcraft.model.TaskModel;
+import simon.klausurcraft.pdf.BatchExporter;
 import simon.klausurcraft.pdf.PdfExporter;
+import simon.klausurcraft.services.CombinationSpace;
+import simon.klausurcraft.services.ExamBudgetSolver;
+import simon.klausurcraft.services.PointCombination;
 import simon.klausurcraft.utils.ThemeManager;
 
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 
 final class HomeGenerateFlow {
 
@@ -129,8 +141,8 @@ final class HomeGenerateFlow {
         var selected = FXCollections.<TaskSelection>observableArrayList();
         var pool = FXCollections.<TaskSelection>observableArrayList();
 
-        // recompute achievable upfront based on fixed scope
-        all.forEach(ts -> ts.recomputeAchievable(root.scope.get()));
+        // compute achievable sums in parallel off the FX thread; cells show "computing…" until done
+        all.forEach(ts -> ts.recomputeAchievableAsync(root.scope.get(), ForkJoinPool.commonPool()));
         // initial: none selected
         pool.setAll(all);
 
@@ -173,12 +185,35 @@ final class HomeGenerateFlow {
         Label total = new Label();
         total.textProperty().bind(TaskSelection.totalPointsBinding(selected));
 
+        // Exam budget: distribute a target total over the selected tasks
+        TextField tfBudget = new TextField();
+        tfBudget.setPromptText("Exam total");
+        tfBudget.setPrefWidth(90);
+        tfBudget.setTextFormatter(new TextFormatter<String>(c -> c.getControlNewText().matches("(\\d{1,5}([.,]\\d{0,2})?)?") ? c : null));
+
+        CheckBox cbExamMix = new CheckBox("Mix at exam level");
+        Tooltip.install(cbExamMix, new Tooltip("Apply the 1/3 difficulty rule to the whole exam instead of each task"));
+
+        Button btnDistribute = new Button("Distribute");
+        btnDistribute.disableProperty().bind(Bindings.isEmpty(selected).or(tfBudget.textProperty().isEmpty()));
+        btnDistribute.setOnAction(e -> {
+            distribute(root, selected, new BigDecimal(tfBudget.getText().replace(',', '.')), cbExamMix.isSelected());
+            lvSelected.refresh();
+        });
+
+        // Versions > 1 = batch of individualized exams (one PDF per version)
+        Spinner<Integer> spVersions = new Spinner<>(1, 999, 1);
+        spVersions.setEditable(true);
+        spVersions.setPrefWidth(80);
+        Tooltip.install(spVersions, new Tooltip("Number of individualized exam versions"));
+
         Button btnGenerateExam = new Button("Generate Exam");
         btnGenerateExam.getStyleClass().add("primary");
         btnGenerateExam.setDefaultButton(true);
         btnGenerateExam.disableProperty().bind(Bindings.isEmpty(selected));
 
-        actions.getChildren().addAll(themeToggle, back, spacer, cbSample, total, btnGenerateExam);
+        actions.getChildren().addAll(themeToggle, back, spacer, tfBudget, cbExamMix, btnDistribute,
+                new Separator(Orientation.VERTICAL), cbSample, total, new Label("Versions:"), spVersions, btnGenerateExam);
         pane.setBottom(actions);
 
         // ----- Modal window -----
@@ -211,13 +246,156 @@ final class HomeGenerateFlow {
         });
 
         btnGenerateExam.setOnAction(e -> {
-            generateExamNow(root, selected);
+            int versions = spVersions.getValue();
             stage.close();
+            if (versions > 1) generateBatch(root, selected, versions);
+            else generateExamNow(root, selected);
         });
 
         stage.showAndWait();
     }
 
+    /** Let the exam budget solver allocate {@code budget} points over the selected tasks. */
+    static void distribute(HomeController root, List<TaskSelection> selections, BigDecimal budget, boolean examMix) {
+        List<ExamBudgetSolver.TaskBudget> tasks = new ArrayList<>();
+        for (TaskSelection ts : selections) tasks.add(new ExamBudgetSolver.TaskBudget(ts.getTask()));
+
+        var mix = examMix ? ExamBudgetSolver.Mix.EXAM : ExamBudgetSolver.Mix.PER_TASK;
+        var shares = ExamBudgetSolver.solve(tasks, root.scope.get(), budget, mix);
+        if (shares.isEmpty()) {
+            HomeNotifications.showError("Cannot distribute " + budget.toPlainString() + " points over the selected tasks"
+                    + (examMix ? "." : " with near 1/3 difficulty per task. Try \"Mix at exam level\"."));
+            return;
+        }
+        for (int i = 0; i < selections.size(); i++) {
+            ExamBudgetSolver.Share share = shares.get().get(i);
+            selections.get(i).applyPreset(share.points(), share.subtasks());
+        }
+    }
+
+    /** Per-space limit for sampling combinations (~8 MB of count tables); larger tasks get one fixed pick. */
+    private static final long MAX_SPACE_CELLS = 1L << 20;
+
+    /** Limit on the count tables of all spaces of one batch (~64 MB). */
+    private static final long MAX_BATCH_CELLS = 1L << 23;
+
+    /** A selected task as chosen in the dialog; read on the FX thread, planned in the background. */
+    private record BatchTask(int number, TaskModel task, BigDecimal points, List<SubtaskModel> preset) {}
+
+    /**
+     * Plan {@code versions} individualized exams from the selection and render them in the background.
+     * Each version samples its own combinations for the chosen points; a progress window allows cancelling.
+     */
+    static void generateBatch(HomeController root, List<TaskSelection> selections, int versions) {
+        List<BatchTask> tasks = new ArrayList<>();
+        int taskIndex = 1;
+        for (TaskSelection ts : selections) {
+            if (!ts.isEnabled()) continue;
+            tasks.add(new BatchTask(taskIndex++, ts.getTask(), ts.getChosenPoints(), ts.getPreset()));
+        }
+        if (tasks.isEmpty()) {
+            HomeNotifications.showError("No tasks selected.");
+            return;
+        }
+
+        File parent = PdfExporter.chooseDirectory(root.getWindow());
+        if (parent == null) return;
+        String stamp = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").format(LocalDateTime.now());
+        File dir = new File(parent, "batch_" + stamp);
+
+        GenerateScope scope = root.scope.get();
+        long seed = new SplittableRandom().nextLong();
+        String title = root.examTitle.get();
+        LocalDate date = root.examDate.get();
+        boolean withSolution = root.withSampleSolution.get();
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        Task<Void> job = new Task<>() {
+            @Override protected Void call() throws Exception {
+                updateMessage("Planning " + versions + " versions…");
+                List<BatchExporter.Version> planned = BatchExporter.plan(taskPlans(tasks, scope), versions, seed);
+                updateProgress(0, versions);
+                BatchExporter.render(dir, title, date, planned, seed, withSolution, threads, (done, all) -> {
+                    updateProgress(done, all);
+                    updateMessage("Rendered " + done + " / " + all);
+                });
+                return null;
+            }
+        };
+
+        ProgressBar bar = new ProgressBar();
+        bar.setPrefWidth(320);
+        bar.progressProperty().bind(job.progressProperty());
+        Label message = new Label();
+        message.textProperty().bind(job.messageProperty());
+        Button cancel = new Button("Cancel");
+        cancel.setOnAction(e -> job.cancel());
+
+        VBox box = new VBox(10, message, bar, cancel);
+        box.setPadding(new Insets(16));
+        Stage progress = new Stage();
+        progress.initOwner(root.getWindow());
+        progress.initModality(Modality.WINDOW_MODAL);
+        progress.setTitle("Generate — " + versions + " versions");
+        Scene scene = new Scene(box);
+        try {
+            scene.getStylesheets().setAll(App.getScene().getStylesheets());
+        } catch (Exception ignored) { /* best effort */ }
+        progress.setScene(scene);
+        progress.setOnCloseRequest(e -> job.cancel());
+
+        job.setOnSucceeded(e -> {
+            progress.close();
+            HomeNotifications.showInfo(versions + " versions generated in " + dir.getName() + ".");
+        });
+        job.setOnCancelled(e -> {
+            progress.close();
+            HomeNotifications.showInfo("Batch generation cancelled.");
+        });
+        job.setOnFailed(e -> {
+            progress.close();
+            Throwable ex = job.getException();
+            HomeNotifications.showError("Generation failed: " + (ex == null ? "unknown error" : ex.getMessage()));
+        });
+
+        Thread worker = new Thread(job, "pdf-batch");
+        worker.setDaemon(true);
+        worker.start();
+        progress.show();
+    }
+
+    /**
+     * Combination spaces for the batch (background thread). A preset is used as is; a task whose space
+     * exceeds {@link #MAX_SPACE_CELLS}, or the remaining {@link #MAX_BATCH_CELLS}, gets a single fixed pick.
+     */
+    private static List<BatchExporter.TaskPlan> taskPlans(List<BatchTask> tasks, GenerateScope scope) {
+        List<BatchExporter.TaskPlan> plans = new ArrayList<>(tasks.size());
+        long budget = MAX_BATCH_CELLS;
+        for (BatchTask bt : tasks) {
+            if (bt.preset() != null) {
+                plans.add(new BatchExporter.TaskPlan(bt.number(), bt.task(), null, bt.preset()));
+                continue;
+            }
+            PointCombination.Feasibility feasibility = PointCombination.feasibility(bt.task(), scope);
+            long cells = PointCombination.combinationCells(feasibility, bt.points());
+            CombinationSpace space = null;
+            if (cells > 0 && cells <= Math.min(MAX_SPACE_CELLS, budget)) {
+                space = PointCombination.combinations(feasibility, bt.points());
+                budget -= cells;
+            }
+            List<SubtaskModel> fixed = null;
+            if (space == null || space.isEmpty()) {
+                space = null;
+                PointCombination.Pick pick = PointCombination.pickSubtasksWithDistribution(
+                        feasibility, bt.points(), PointCombination.DEFAULT_PICK_BUDGET);
+                if (pick == null || pick.timedOut()) throw new IllegalStateException(pickFailure(bt.task(), bt.points(), pick));
+                fixed = pick.subtasks();
+            }
+            plans.add(new BatchExporter.TaskPlan(bt.number(), bt.task(), space, fixed));
+        }
+        return plans;
+    }
+
     static void generateExamNow(HomeController root, List<TaskSelection> selections) {
         try {
             PdfExporter exporter = new PdfExporter();
@@ -226,23 +404,24 @@ final class HomeGenerateFlow {
             int taskIndex = 1;
             for (TaskSelection ts : selections) {
                 if (!ts.isEnabled()) continue;
-                int chosenPts = ts.getChosenPoints();
+                BigDecimal chosenPts = ts.getChosenPoints();
                 TaskModel task = ts.getTask();
 
-                List<SubtaskModel> eligible = task.getSubtasks().stream()
-                        .filter(st -> st.isEligibleFor(root.scope.get()))
-                        .collect(Collectors.toList());
+                if (ts.getPreset() != null) {
+                    assemblies.add(new PdfExporter.TaskAssembly(taskIndex++, task, ts.getPreset()));
+                    continue;
+                }
 
-                List<SubtaskModel> chosen = simon.klausurcraft.services.PointCombination.pickSubtasksWithDistribution(
-                        eligible, chosenPts);
+                PointCombination.Feasibility feasibility = PointCombination.feasibility(task, root.scope.get());
+                PointCombination.Pick pick = PointCombination.pickSubtasksWithDistribution(
+                        feasibility, chosenPts, PointCombination.DEFAULT_PICK_BUDGET);
 
-                if (chosen == null) {
-                    HomeNotifications.showError("Task " + task.getId() + ": no feasible combination for " + chosenPts
-                            + " points with near 1/3 difficulty. Add more subtasks of different difficulties.");
+                if (pick == null || pick.timedOut()) {
+                    HomeNotifications.showError(pickFailure(task, chosenPts, pick));
                     return;
                 }
 
-                assemblies.add(new PdfExporter.TaskAssembly(taskIndex++, task, chosen));
+                assemblies.add(new PdfExporter.TaskAssembly(taskIndex++, task, pick.subtasks()));
             }
 
             if (assemblies.isEmpty()) {
@@ -258,4 +437,14 @@ final class HomeGenerateFlow {
             HomeNotifications.showError("Generation failed: " + ex.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /** Error text for a failed pick: impossible sum ({@code pick == null}) or search budget spent. */
+    private static String pickFailure(TaskModel task, BigDecimal points, PointCombination.Pick pick) {
+        if (pick == null) {
+            return "Task " + task.getId() + ": no feasible combination for " + points.toPlainString()
+                    + " points with near 1/3 difficulty. Add more subtasks of different difficulties.";
+        }
+        return "Task " + task.getId() + ": " + points.toPlainString() + " points are achievable, but finding a combination"
+                + " took too long. Choose a preset or try again.";
+    }
+}
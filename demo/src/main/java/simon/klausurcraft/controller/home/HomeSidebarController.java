@@ -20,10 +20,12 @@ public class HomeSidebarController {
 
     @FXML private TreeView<TocNode> tocTree;
     @FXML private Button btnLoad;
+    @FXML private Button btnLoadDir;
 
     public void init(HomeController root) {
         this.root = root;
         btnLoad.setOnAction(e -> HomeFileController.chooseAndLoadXml(root));
+        btnLoadDir.setOnAction(e -> HomeFileController.chooseAndLoadDirectory(root));
 
         // Render cell text
         tocTree.setCellFactory(tv -> new TreeCell<>() {
@@ -59,8 +61,8 @@ public class HomeSidebarController {
         for (TaskModel t : tasks) {
             TreeItem<TocNode> taskNode = new TreeItem<>(TocNode.forTask(t));
             for (SubtaskModel st : t.getSubtasks()) {
-                String name = root.getXmlService().readSubtaskGroup(st);
-                if (name == null || name.isBlank()) {
+                String name = st.getGroup();
+                if (name.isBlank()) {
                     name = "Subtask " + t.getId() + "." + st.getId();
                 }
                 taskNode.getChildren().add(new TreeItem<>(TocNode.forSubtask(t, st, name)));
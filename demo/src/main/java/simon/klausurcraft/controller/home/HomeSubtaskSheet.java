@@ -27,7 +27,7 @@ final class HomeSubtaskSheet {
         XmlService xmlService = root.getXmlService();
 
         // Subtask "title" from variants@group
-        String currentGroup = xmlService.readSubtaskGroup(sub);
+        String currentGroup = sub.getGroup();
         TextField tfSubtaskTitle = new TextField(currentGroup);
         tfSubtaskTitle.setPromptText("Subtask title (variants@group)");
         tfSubtaskTitle.setMaxWidth(Double.MAX_VALUE);
@@ -51,7 +51,7 @@ final class HomeSubtaskSheet {
         VBox ptsBox = new VBox(4);
         Label lblPts = new Label("Points");
         TextField tfPoints = new TextField(sub.getPoints().stripTrailingZeros().toPlainString());
-        tfPoints.setPromptText("Integer (≥ 0)");
+        tfPoints.setPromptText("Number (≥ 0), e.g. 1.5");
         Label lblPtsError = new Label();
         lblPtsError.getStyleClass().add("field-error"); // styled via existing CSS theme
         lblPtsError.setManaged(false);
@@ -59,10 +59,10 @@ final class HomeSubtaskSheet {
 
         tfPoints.textProperty().addListener((o, ov, nv) -> {
             String s = nv == null ? "" : nv.trim();
-            boolean ok = s.matches("\\d+");
+            boolean ok = s.matches("\\d+([.,]\\d{1,2})?");
             if (ok) {
                 try {
-                    sub.setPoints(new BigDecimal(s));
+                    sub.setPoints(new BigDecimal(s.replace(',', '.')));
                     xmlService.updateSubtaskMeta(sub);
                     root.centerController.render(root.getTasks(), root.currentQuery(), root.allowedDifficulties());
                     lblPtsError.setManaged(false);
@@ -77,7 +77,7 @@ final class HomeSubtaskSheet {
                     }
                 }
             } else {
-                lblPtsError.setText("Please enter a non-negative integer.");
+                lblPtsError.setText("Please enter a non-negative number (up to 2 decimals).");
                 lblPtsError.setManaged(true);
                 lblPtsError.setVisible(true);
                 if (!tfPoints.getStyleClass().contains("field-error-border")) {
@@ -226,7 +226,7 @@ final class HomeSubtaskSheet {
             taText.setPrefRowCount(3);
             taText.textProperty().addListener((o, ov, nv) -> {
                 v.setText(nv);
-                xmlService.updateVariant(v);
+                xmlService.updateVariant(sub, v);
             });
 
             TextArea taSol = new TextArea(v.getSolution());
@@ -234,7 +234,7 @@ final class HomeSubtaskSheet {
             taSol.setPrefRowCount(3);
             taSol.textProperty().addListener((o, ov, nv) -> {
                 v.setSolution(nv);
-                xmlService.updateVariant(v);
+                xmlService.updateVariant(sub, v);
             });
 
             vCard.getChildren().addAll(vHeader, new Label("Text"), taText, new Label("Solution"), taSol);
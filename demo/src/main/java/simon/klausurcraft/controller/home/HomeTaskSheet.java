@@ -99,7 +99,7 @@ final class HomeTaskSheet {
             // Attempt to create task in the currently loaded XML
             Optional<TaskModel> created = root.getXmlService().addTask(title);
             if (created.isEmpty()) {
-                // Most likely no XML loaded yet (XmlService.doc == null)
+                // Most likely no XML loaded yet
                 HomeNotifications.showError("No XML file is open. Please open an XML file first.");
                 return Optional.empty();
             }
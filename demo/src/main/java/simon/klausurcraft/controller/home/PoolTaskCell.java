@@ -1,10 +1,12 @@
 package simon.klausurcraft.controller.home;
 
+import javafx.beans.value.ChangeListener;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -13,6 +15,7 @@ import java.util.stream.Collectors;
  * - Checkbox checked => move to selected (enable)
  * - Shows a textual list of achievable point sums (e.g., "Possible: 6, 8, 10")
  * - If no achievable sums, checkbox is disabled and a tooltip explains why.
+ * - Shows "computing…" (checkbox disabled) until the background computation has finished.
  */
 class PoolTaskCell extends ListCell<TaskSelection> {
 
@@ -24,6 +27,12 @@ class PoolTaskCell extends ListCell<TaskSelection> {
     private final Label lblPossible = new Label();
     private final HBox box;
 
+    private TaskSelection observed;
+    private final ChangeListener<Boolean> onComputingChanged = (o, ov, nv) -> {
+        TaskSelection ts = getItem();
+        if (ts != null && !isEmpty()) render(ts);
+    };
+
     PoolTaskCell(HomeController root,
                  List<TaskSelection> selected,
                  List<TaskSelection> pool) {
@@ -51,7 +60,7 @@ class PoolTaskCell extends ListCell<TaskSelection> {
                 ts.setEnabled(true);
                 pool.remove(ts);
                 if (!selected.contains(ts)) {
-                    if (ts.getChosenPoints() == 0 && !ts.getAchievable().isEmpty()) {
+                    if (ts.getChosenPoints().signum() == 0 && !ts.getAchievable().isEmpty()) {
                         ts.chosenPointsProperty().set(ts.getAchievable().get(0));
                     }
                     selected.add(ts);
@@ -64,23 +73,36 @@ class PoolTaskCell extends ListCell<TaskSelection> {
     protected void updateItem(TaskSelection item, boolean empty) {
         super.updateItem(item, empty);
 
+        // follow the async achievability computation of the shown item
+        if (observed != item) {
+            if (observed != null) observed.computingProperty().removeListener(onComputingChanged);
+            observed = item;
+            if (observed != null) observed.computingProperty().addListener(onComputingChanged);
+        }
+
         if (empty || item == null) {
             setGraphic(null);
             setText(null);
             return;
         }
+        render(item);
+    }
 
+    private void render(TaskSelection item) {
         cbPick.setSelected(false);
         boolean hasOptions = !item.getAchievable().isEmpty();
-        cbPick.setDisable(!hasOptions);
+        cbPick.setDisable(item.isComputing() || !hasOptions);
 
-        if (!hasOptions) {
+        if (item.isComputing()) {
+            lblPossible.setText("computing…");
+            Tooltip.uninstall(cbPick, null);
+        } else if (!hasOptions) {
             Tooltip tip = new Tooltip("No achievable point sum for current scope. Add subtasks with diverse difficulties.");
             Tooltip.install(cbPick, tip);
             lblPossible.setText("(no possible points)");
         } else {
             String poss = item.getAchievable().stream()
-                    .map(Object::toString)
+                    .map(BigDecimal::toPlainString)
                     .collect(Collectors.joining(", "));
             lblPossible.setText("Possible: " + poss);
             Tooltip.uninstall(cbPick, null);
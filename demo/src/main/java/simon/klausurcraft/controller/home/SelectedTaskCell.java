@@ -8,6 +8,7 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -24,7 +25,7 @@ class SelectedTaskCell extends ListCell<TaskSelection> {
     private final CheckBox cbSelected = new CheckBox();
     private final Label title = new Label();
     private final Label lblPoints = new Label("Points:");
-    private final ComboBox<Integer> cbPoints = new ComboBox<>();
+    private final ComboBox<BigDecimal> cbPoints = new ComboBox<>();
     private final Button btnUp = new Button("↑");
     private final Button btnDown = new Button("↓");
 
@@ -142,11 +143,14 @@ class SelectedTaskCell extends ListCell<TaskSelection> {
 
         // ensure achievable is up to date (scope fixed in step 2)
         cbPoints.setItems(item.getAchievable());
-        if (!item.getAchievable().isEmpty()) {
+        if (item.getPreset() != null) {
+            // solver allocation (may be outside the per-task achievable sums)
+            cbPoints.setValue(item.getChosenPoints());
+        } else if (!item.getAchievable().isEmpty()) {
             if (!item.getAchievable().contains(item.getChosenPoints())) {
                 cbPoints.getSelectionModel().select(item.getAchievable().get(0));
             } else {
-                cbPoints.getSelectionModel().select(Integer.valueOf(item.getChosenPoints()));
+                cbPoints.getSelectionModel().select(item.getChosenPoints());
             }
         } else {
             cbPoints.getSelectionModel().clearSelection();
@@ -1,5 +1,6 @@
 package simon.klausurcraft.controller.home;
 
+import javafx.application.Platform;
 import javafx.beans.Observable;
 import javafx.beans.binding.StringBinding;
 import javafx.beans.property.*;
@@ -7,34 +8,91 @@ import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import simon.klausurcraft.model.GenerateScope;
+import simon.klausurcraft.model.SubtaskModel;
 import simon.klausurcraft.model.TaskModel;
 import simon.klausurcraft.services.PointCombination;
+import simon.klausurcraft.services.PointScale;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class TaskSelection {
     private final TaskModel task;
     private final BooleanProperty enabled = new SimpleBooleanProperty(false);
-    private final IntegerProperty chosenPoints = new SimpleIntegerProperty(0);
-    private final ObservableList<Integer> achievable = FXCollections.observableArrayList();
+    // normalized (see PointScale#normalize), so equals() matches the achievable sums
+    private final ObjectProperty<BigDecimal> chosenPoints = new SimpleObjectProperty<>(BigDecimal.ZERO);
+    private final ObservableList<BigDecimal> achievable = FXCollections.observableArrayList();
+    private final ReadOnlyBooleanWrapper computing = new ReadOnlyBooleanWrapper(false);
+    private long generation; // FX thread only
+    private List<SubtaskModel> preset; // subtasks allocated by the exam budget solver, if any
+    private BigDecimal presetPoints;
 
     public TaskSelection(TaskModel task) {
         this.task = task;
+        // a manual change of the points discards the solver's allocation
+        chosenPoints.addListener((o, ov, nv) -> {
+            if (preset != null && (nv == null || presetPoints.compareTo(nv) != 0)) preset = null;
+        });
     }
 
     public TaskModel getTask() { return task; }
     public boolean isEnabled() { return enabled.get(); }
     public void setEnabled(boolean v) { enabled.set(v); }
     public BooleanProperty enabledProperty() { return enabled; }
-    public int getChosenPoints() { return chosenPoints.get(); }
-    public IntegerProperty chosenPointsProperty() { return chosenPoints; }
-    public ObservableList<Integer> getAchievable() { return achievable; }
+    public BigDecimal getChosenPoints() { return chosenPoints.get(); }
+    public ObjectProperty<BigDecimal> chosenPointsProperty() { return chosenPoints; }
+    public ObservableList<BigDecimal> getAchievable() { return achievable; }
+
+    /** Subtasks chosen by the exam budget solver for the current points, or null. */
+    public List<SubtaskModel> getPreset() { return preset; }
+
+    /** Take over a solver allocation; the points may lie outside {@link #getAchievable()} with exam-level mixing. */
+    public void applyPreset(BigDecimal points, List<SubtaskModel> subtasks) {
+        preset = List.copyOf(subtasks);
+        presetPoints = PointScale.normalize(points);
+        chosenPoints.set(presetPoints);
+    }
+
+    public boolean isComputing() { return computing.get(); }
+    public ReadOnlyBooleanProperty computingProperty() { return computing.getReadOnlyProperty(); }
 
     public void recomputeAchievable(GenerateScope scope) {
-        achievable.setAll(PointCombination.achievablePointSums(task, scope));
-        if (!achievable.contains(chosenPoints.get())) {
-            chosenPoints.set(achievable.isEmpty() ? 0 : achievable.get(0));
+        generation++; // supersedes any pending async result
+        computing.set(false);
+        applyAchievable(PointCombination.achievablePointSums(task, scope));
+    }
+
+    /**
+     * Compute achievable sums on {@code executor} against a snapshot taken now (FX thread).
+     * The result is published back on the FX thread; {@link #computingProperty()} is true meanwhile.
+     * A newer request supersedes older ones still in flight.
+     */
+    public CompletableFuture<Void> recomputeAchievableAsync(GenerateScope scope, Executor executor) {
+        PointCombination.Snapshot snapshot = PointCombination.snapshot(task, scope);
+        long gen = ++generation;
+        computing.set(true);
+        return CompletableFuture
+                .supplyAsync(() -> PointCombination.achievablePointSums(snapshot), executor)
+                .handleAsync((sums, err) -> {
+                    if (gen != generation) return null;
+                    if (err != null) {
+                        System.err.println("[ACHIEVABLE] Task " + task.getId() + ": " + err.getMessage());
+                        applyAchievable(List.of());
+                    } else {
+                        applyAchievable(sums);
+                    }
+                    computing.set(false);
+                    return null;
+                }, Platform::runLater);
+    }
+
+    private void applyAchievable(List<BigDecimal> sums) {
+        achievable.setAll(sums);
+        if (preset == null && !achievable.contains(chosenPoints.get())) {
+            chosenPoints.set(achievable.isEmpty() ? BigDecimal.ZERO : achievable.get(0));
         }
     }
 
@@ -81,12 +139,11 @@ public class TaskSelection {
 
             @Override
             protected String computeValue() {
-                int sum = items.stream()
+                BigDecimal sum = items.stream()
                         .filter(TaskSelection::isEnabled)
                         .map(TaskSelection::getChosenPoints)
-                        .mapToInt(Integer::intValue)
-                        .sum();
-                return "Total points: " + sum;
+                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                return "Total points: " + PointScale.normalize(sum).toPlainString();
             }
         }
         return new TotalBinding();
@@ -9,6 +9,8 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 
+import java.math.BigDecimal;
+
 /**
  * ListCell for TaskSelection rows in Step 2 (Generate flow).
  * - Compact, responsive layout (no horizontal scrollbars needed)
@@ -21,7 +23,7 @@ public class TaskSelectionCell extends ListCell<TaskSelection> {
 
     private final CheckBox cbEnable = new CheckBox();
     private final Label title = new Label();
-    private final ComboBox<Integer> cbPoints = new ComboBox<>();
+    private final ComboBox<BigDecimal> cbPoints = new ComboBox<>();
     private final Button btnUp = new Button("↑");
     private final Button btnDown = new Button("↓");
 
@@ -43,16 +45,16 @@ public class TaskSelectionCell extends ListCell<TaskSelection> {
 
         // Ensure value rendering is readable in dark & light themes
         cbPoints.setButtonCell(new ListCell<>() {
-            @Override protected void updateItem(Integer item, boolean empty) {
+            @Override protected void updateItem(BigDecimal item, boolean empty) {
                 super.updateItem(item, empty);
-                setText(empty || item == null ? "" : String.valueOf(item));
+                setText(empty || item == null ? "" : item.toPlainString());
                 setAlignment(Pos.CENTER_LEFT);
             }
         });
         cbPoints.setCellFactory(listView -> new ListCell<>() {
-            @Override protected void updateItem(Integer item, boolean empty) {
+            @Override protected void updateItem(BigDecimal item, boolean empty) {
                 super.updateItem(item, empty);
-                setText(empty || item == null ? "" : String.valueOf(item));
+                setText(empty || item == null ? "" : item.toPlainString());
                 setAlignment(Pos.CENTER_LEFT);
             }
         });
@@ -176,7 +178,7 @@ public class TaskSelectionCell extends ListCell<TaskSelection> {
             if (!item.getAchievable().contains(item.getChosenPoints())) {
                 cbPoints.getSelectionModel().select(item.getAchievable().get(0));
             } else {
-                cbPoints.getSelectionModel().select(Integer.valueOf(item.getChosenPoints()));
+                cbPoints.getSelectionModel().select(item.getChosenPoints());
             }
         } else {
             cbPoints.getSelectionModel().clearSelection();
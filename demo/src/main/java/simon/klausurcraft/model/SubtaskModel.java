@@ -1,28 +1,25 @@
 package simon.klausurcraft.model;
 
-import org.w3c.dom.Element;
-
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Subtask within a task. Holds DOM element for autosave-on-change.
+ * Subtask within a task. {@code group} is the subtask title (variants@group in the XML).
  */
 public class SubtaskModel {
-    private final Element dom; // <subtask>
     private final TaskModel parent;
 
     private final String id;
     private BigDecimal points;
     private Difficulty difficulty;
     private Eligibility eligibility;
+    private String group = "";
 
     private final List<VariantModel> variants = new ArrayList<>();
 
-    public SubtaskModel(Element dom, TaskModel parent, String id, BigDecimal points,
+    public SubtaskModel(TaskModel parent, String id, BigDecimal points,
                         Difficulty difficulty, Eligibility eligibility) {
-        this.dom = dom;
         this.parent = parent;
         this.id = id;
         this.points = points;
@@ -30,17 +27,18 @@ public class SubtaskModel {
         this.eligibility = eligibility;
     }
 
-    public Element getDom() { return dom; }
     public TaskModel getParent() { return parent; }
 
     public String getId() { return id; }
     public BigDecimal getPoints() { return points; }
     public Difficulty getDifficulty() { return difficulty; }
     public Eligibility getEligibility() { return eligibility; }
+    public String getGroup() { return group; }
 
     public void setPoints(BigDecimal points) { this.points = points; }
     public void setDifficulty(Difficulty d) { this.difficulty = d; }
     public void setEligibility(Eligibility e) { this.eligibility = e; }
+    public void setGroup(String group) { this.group = group == null ? "" : group; }
 
     public List<VariantModel> getVariants() { return variants; }
 
@@ -0,0 +1,151 @@
+package simon.klausurcraft.pdf;
+
+import simon.klausurcraft.model.SubtaskModel;
+import simon.klausurcraft.model.TaskModel;
+import simon.klausurcraft.model.VariantModel;
+import simon.klausurcraft.services.CombinationSpace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch mode: N individualized versions of one exam.
+ *
+ * {@link #plan} assigns every version its own subtask combinations (uniform samples from each task's
+ * {@link CombinationSpace}) and variants from a seeded {@link SplittableRandom}, so a batch can be
+ * reproduced from the seed in its manifest. {@link #render} writes {@code exam_<n>.pdf} (and
+ * {@code solution_<n>.pdf}) for all versions in parallel on a bounded pool, then {@code manifest.csv}.
+ */
+public final class BatchExporter {
+
+    private BatchExporter() {}
+
+    /** Retries per task and version to avoid repeating a combination another version already got. */
+    private static final int DISTINCT_ATTEMPTS = 8;
+
+    /** One selected task: fixed subtasks (a preset, or a single pick) if not null, otherwise its combination space. */
+    public record TaskPlan(int number, TaskModel task, CombinationSpace space, List<SubtaskModel> fixed) {}
+
+    /** A planned version (1..N) with its assemblies. */
+    public record Version(int number, List<PdfExporter.TaskAssembly> tasks) {}
+
+    /** Progress callback; called from worker threads. */
+    @FunctionalInterface
+    public interface Progress {
+        void update(int done, int total);
+    }
+
+    /** Assign combinations and variants to {@code count} versions; deterministic for a given seed. */
+    public static List<Version> plan(List<TaskPlan> tasks, int count, long seed) {
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Set<List<SubtaskModel>>> used = new ArrayList<>();
+        for (int t = 0; t < tasks.size(); t++) used.add(new HashSet<>());
+
+        List<Version> versions = new ArrayList<>(count);
+        for (int v = 1; v <= count; v++) {
+            SplittableRandom rnd = root.split();
+            List<PdfExporter.TaskAssembly> assemblies = new ArrayList<>(tasks.size());
+            for (int t = 0; t < tasks.size(); t++) {
+                TaskPlan tp = tasks.get(t);
+                List<SubtaskModel> subtasks = pickSubtasks(tp, used.get(t), rnd);
+                assemblies.add(new PdfExporter.TaskAssembly(tp.number(), tp.task(), subtasks,
+                        PdfExporter.randomVariants(subtasks, rnd)));
+            }
+            versions.add(new Version(v, List.copyOf(assemblies)));
+        }
+        return versions;
+    }
+
+    private static List<SubtaskModel> pickSubtasks(TaskPlan tp, Set<List<SubtaskModel>> used, SplittableRandom rnd) {
+        CombinationSpace space = tp.space();
+        if (tp.fixed() != null || space == null || space.isEmpty()) return tp.fixed();
+        // prefer unused combinations while the space still has some
+        boolean exhausted = used.size() >= space.size();
+        List<SubtaskModel> pick = space.sample(rnd);
+        for (int i = 1; i < DISTINCT_ATTEMPTS && !exhausted && used.contains(pick); i++) pick = space.sample(rnd);
+        used.add(pick);
+        return pick;
+    }
+
+    /**
+     * Render all versions into {@code dir} with up to {@code threads} workers.
+     * Honors interruption of the calling thread: pending versions are dropped and
+     * {@link CancellationException} is thrown; files already written are kept, the manifest is not.
+     */
+    public static void render(File dir, String title, LocalDate date, List<Version> versions, long seed,
+                              boolean withSolution, int threads, Progress progress) throws Exception {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+
+        int width = Integer.toString(versions.size()).length();
+        PdfExporter exporter = new PdfExporter();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger worker = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, versions.size())), r -> {
+            Thread t = new Thread(r, "pdf-batch-" + worker.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            ExecutorCompletionService<Void> ecs = new ExecutorCompletionService<>(pool);
+            for (Version v : versions) {
+                ecs.submit(() -> {
+                    String n = String.format("%0" + width + "d", v.number());
+                    exporter.writeExam(new File(dir, "exam_" + n + ".pdf"), title, date, v.tasks(), false);
+                    if (withSolution) {
+                        exporter.writeExam(new File(dir, "solution_" + n + ".pdf"),
+                                title + " — Solutions", date, v.tasks(), true);
+                    }
+                    progress.update(done.incrementAndGet(), versions.size());
+                    return null;
+                });
+            }
+            for (int i = 0; i < versions.size(); i++) {
+                try {
+                    ecs.take().get();
+                } catch (InterruptedException ie) {
+                    throw new CancellationException("Batch export cancelled");
+                } catch (ExecutionException ee) {
+                    throw ee.getCause() instanceof Exception ex ? ex : ee;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        writeManifest(new File(dir, "manifest.csv"), versions, seed, width);
+    }
+
+    /** version;task;subtask;variant;points per line, plus the seed to reproduce the batch. */
+    private static void writeManifest(File out, List<Version> versions, long seed, int width) throws IOException {
+        try (PrintWriter w = new PrintWriter(out, StandardCharsets.UTF_8)) {
+            w.println("# seed=" + seed);
+            w.println("version;task;subtask;variant;points");
+            for (Version v : versions) {
+                String n = String.format("%0" + width + "d", v.number());
+                for (PdfExporter.TaskAssembly ta : v.tasks()) {
+                    for (int i = 0; i < ta.chosenSubtasks.size(); i++) {
+                        SubtaskModel st = ta.chosenSubtasks.get(i);
+                        VariantModel variant = ta.chosenVariants.get(i);
+                        w.println(n + ";" + ta.task.getId() + ";" + st.getId() + ";"
+                                + (variant == null ? "" : variant.getId()) + ";"
+                                + st.getPoints().stripTrailingZeros().toPlainString());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -14,10 +14,12 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.prefs.Preferences;
+import java.util.random.RandomGenerator;
 
 /**
  * Generates two PDFs: exam and optional sample solution.
@@ -35,17 +37,52 @@ public class PdfExporter {
         public final int number; // 1..N
         public final TaskModel task;
         public final List<SubtaskModel> chosenSubtasks;
+        public final List<VariantModel> chosenVariants; // parallel to chosenSubtasks, null entry = no variant
 
+        /** Picks one random variant per subtask, shared by exam and solution. */
         public TaskAssembly(int number, TaskModel task, List<SubtaskModel> chosenSubtasks) {
+            this(number, task, chosenSubtasks, randomVariants(chosenSubtasks, ThreadLocalRandom.current()));
+        }
+
+        public TaskAssembly(int number, TaskModel task, List<SubtaskModel> chosenSubtasks,
+                            List<VariantModel> chosenVariants) {
+            if (chosenVariants.size() != chosenSubtasks.size()) {
+                throw new IllegalArgumentException("one variant per subtask required");
+            }
             this.number = number;
             this.task = task;
             this.chosenSubtasks = chosenSubtasks;
+            this.chosenVariants = chosenVariants;
+        }
+    }
+
+    /** One random variant per subtask (null where a subtask has none). */
+    public static List<VariantModel> randomVariants(List<SubtaskModel> subtasks, RandomGenerator rnd) {
+        List<VariantModel> out = new ArrayList<>(subtasks.size());
+        for (SubtaskModel st : subtasks) {
+            List<VariantModel> variants = st.getVariants();
+            out.add(variants.isEmpty() ? null : variants.get(rnd.nextInt(variants.size())));
         }
+        return out;
     }
 
     public void export(Window owner, String title, LocalDate date,
                        List<TaskAssembly> tasks, boolean withSolution) throws Exception {
+        File dir = chooseDirectory(owner);
+        if (dir == null) return;
 
+        String ts = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").format(java.time.LocalDateTime.now());
+        File examFile = new File(dir, "exam_" + ts + ".pdf");
+        writeExam(examFile, title, date, tasks, false);
+
+        if (withSolution) {
+            File solFile = new File(dir, "solution_" + ts + ".pdf");
+            writeExam(solFile, title + " — Solutions", date, tasks, true);
+        }
+    }
+
+    /** Let the user pick the export directory (remembered across runs); null if cancelled. */
+    public static File chooseDirectory(Window owner) {
         Preferences p = Preferences.userRoot().node(PREFS_NODE);
 
         DirectoryChooser chooser = new DirectoryChooser();
@@ -60,26 +97,27 @@ public class PdfExporter {
         }
 
         File dir = chooser.showDialog(owner);
-        if (dir == null) return;
+        if (dir == null) return null;
 
         // remember chosen directory
         p.put(PREF_LAST_EXPORT_DIR, dir.getAbsolutePath());
+        return dir;
+    }
 
-        String ts = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").format(java.time.LocalDateTime.now());
-        File examFile = new File(dir, "exam_" + ts + ".pdf");
-        writeExam(examFile, title, date, tasks, false);
-
-        if (withSolution) {
-            File solFile = new File(dir, "solution_" + ts + ".pdf");
-            writeExam(solFile, title + " — Solutions", date, tasks, true);
+    /** Render one exam (or its solution) to {@code out}. Stateless, so safe to call from several threads. */
+    void writeExam(File out, String title, LocalDate date,
+                   List<TaskAssembly> tasks, boolean includeSolutions) throws Exception {
+        Document doc = new Document(PageSize.A4, 50, 50, 60, 60);
+        try (FileOutputStream fos = new FileOutputStream(out)) {
+            PdfWriter.getInstance(doc, fos);
+            doc.open();
+            writeContent(doc, title, date, tasks, includeSolutions);
+            doc.close();
         }
     }
 
-    private void writeExam(File out, String title, LocalDate date,
-                           List<TaskAssembly> tasks, boolean includeSolutions) throws Exception {
-        Document doc = new Document(PageSize.A4, 50, 50, 60, 60);
-        PdfWriter.getInstance(doc, new FileOutputStream(out));
-        doc.open();
+    private void writeContent(Document doc, String title, LocalDate date,
+                              List<TaskAssembly> tasks, boolean includeSolutions) throws DocumentException {
 
         // Fonts (larger, clearer task headers)
         Font h1 = new Font(Font.HELVETICA, 18, Font.BOLD);
@@ -103,13 +141,11 @@ public class PdfExporter {
 
             AtomicInteger subIndex = new AtomicInteger(0);
             for (SubtaskModel st : ta.chosenSubtasks) {
-                char letter = (char) ('a' + subIndex.getAndIncrement());
+                int i = subIndex.getAndIncrement();
+                char letter = (char) ('a' + i);
 
-                // NEU: Zufällige Variante wählen
-                List<VariantModel> variants = st.getVariants();
-                VariantModel variant = variants.isEmpty()
-                        ? null
-                        : variants.get(ThreadLocalRandom.current().nextInt(variants.size()));
+                // variant chosen once per assembly, so exam and solution show the same text
+                VariantModel variant = ta.chosenVariants.get(i);
 
                 String text = (variant != null ? variant.getText() : "").trim();
                 if (text.isEmpty()) text = "(no text)";
@@ -145,13 +181,11 @@ public class PdfExporter {
                 }
             }
         }
-
-        doc.close();
     }
 
     private float answerBoxHeight(SubtaskModel st) {
         // Minimum ~3 lines at 11pt -> ~48pt, add per point ~11pt
-        int pts = st.getPoints().intValue();
+        float pts = st.getPoints().floatValue();
         float base = 48f;
         float perPoint = 11f;
         float h = base + Math.max(0, pts - 3) * perPoint;
@@ -0,0 +1,199 @@
+package simon.klausurcraft.services;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Crash-safe file replacement: the content is streamed into a temp file next to the target,
+ * forced to disk and renamed over the target with {@code ATOMIC_MOVE}. A crash at any point leaves
+ * either the old or the new file, never a truncated one.
+ *
+ * Optional rotating backups {@code <name>.1.bak} (newest) .. {@code <name>.<n>.bak} hold the
+ * previous versions; the newest is a hard link to the replaced file where the file system allows it.
+ *
+ * The content is hashed (SHA-256) while it streams; when it matches the digest of the current file,
+ * the temp file is dropped and the target, its backups and its timestamp stay untouched. Right before
+ * the rename the target is hashed again: if another program changed it since, it is not replaced.
+ *
+ * On POSIX file systems the temp file gets the target's permissions (and owner and group where
+ * allowed) before the rename, so a save does not narrow the file to the temp file's 0600.
+ */
+public final class AtomicFileWriter {
+
+    private AtomicFileWriter() {}
+
+    private static final int BUFFER = 64 * 1024;
+
+    /** Writes the content to the stream; the stream must not be closed. */
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Outcome of a write; {@code replaced} is false if the content equalled the current file, or if the
+     * file was changed by someone else ({@code stale}) and therefore kept.
+     */
+    public record Result(long bytes, byte[] sha256, boolean replaced, boolean stale) {}
+
+    /** Replace {@code target} with the content, keeping {@code backups} previous versions; returns the bytes written. */
+    public static long write(Path target, int backups, Content content) throws Exception {
+        return write(target, backups, null, content).bytes();
+    }
+
+    /**
+     * Like {@link #write(Path, int, Content)}, but leaves {@code target} alone if the SHA-256 of the
+     * content equals {@code currentSha256} (the digest of the file as last read or written; may be null),
+     * or if the file on disk no longer has that digest (a stale result).
+     */
+    public static Result write(Path target, int backups, byte[] currentSha256, Content content) throws Exception {
+        Path file = target.toAbsolutePath();
+        Path dir = file.getParent();
+        Path tmp = Files.createTempFile(dir, "." + file.getFileName() + ".", ".tmp");
+        long bytes;
+        byte[] sha;
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CountingStream out = new CountingStream(new BufferedOutputStream(Channels.newOutputStream(ch), BUFFER));
+                content.writeTo(out);
+                out.flush();
+                bytes = out.count;
+                sha = out.digest.digest();
+                if (MessageDigest.isEqual(sha, currentSha256) && Files.exists(file)) {
+                    ch.close();
+                    Files.delete(tmp);
+                    return new Result(bytes, sha, false, false);
+                }
+                ch.force(true);
+            }
+            if (currentSha256 != null && Files.exists(file) && !MessageDigest.isEqual(sha256(file), currentSha256)) {
+                Files.delete(tmp);
+                return new Result(bytes, sha, false, true);
+            }
+            if (Files.exists(file)) copyPosixAttributes(file, tmp);
+            if (backups > 0 && Files.exists(file)) rotateBackups(file, backups);
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        forceDirectory(dir);
+        return new Result(bytes, sha, true, false);
+    }
+
+    /** New SHA-256 digest (always available on the Java platform). */
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** SHA-256 of the file's current content. */
+    static byte[] sha256(Path file) throws IOException {
+        MessageDigest sha = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), sha)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return sha.digest();
+    }
+
+    static Path backupPath(Path file, int i) {
+        return file.resolveSibling(file.getFileName() + "." + i + ".bak");
+    }
+
+    private static void rotateBackups(Path file, int backups) throws IOException {
+        Files.deleteIfExists(backupPath(file, backups));
+        for (int i = backups - 1; i >= 1; i--) {
+            Path from = backupPath(file, i);
+            if (Files.exists(from)) Files.move(from, backupPath(file, i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path newest = backupPath(file, 1);
+        try {
+            Files.createLink(newest, file); // the rename below detaches the link from the new content
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(file, newest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Owner, group and permissions of {@code from} onto {@code to}; best effort, no-op off POSIX. */
+    private static void copyPosixAttributes(Path from, Path to) {
+        PosixFileAttributeView src = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+        PosixFileAttributeView dst = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+        if (src == null || dst == null) return;
+        PosixFileAttributes attrs;
+        try {
+            attrs = src.readAttributes();
+        } catch (IOException e) {
+            return;
+        }
+        // ownership first: chown may clear permission bits; it fails without privileges, which is fine
+        try {
+            dst.setOwner(attrs.owner());
+        } catch (IOException | SecurityException ignored) {
+            // keep our own user
+        }
+        try {
+            dst.setGroup(attrs.group());
+        } catch (IOException | SecurityException ignored) {
+            // not a member of that group
+        }
+        try {
+            dst.setPermissions(attrs.permissions());
+        } catch (IOException | SecurityException e) {
+            System.err.println("[XML SAVE ERROR] Cannot keep the permissions of " + from + ": " + e.getMessage());
+        }
+    }
+
+    /** Persist the rename itself; not supported on every platform (e.g. Windows), so best effort. */
+    private static void forceDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignored) {
+            // best effort
+        }
+    }
+
+    private static final class CountingStream extends FilterOutputStream {
+        final MessageDigest digest = sha256();
+        long count;
+
+        CountingStream(OutputStream out) { super(out); }
+
+        @Override public void write(int b) throws IOException {
+            out.write(b);
+            digest.update((byte) b);
+            count++;
+        }
+
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            digest.update(b, off, len);
+            count += len;
+        }
+
+        @Override public void close() {
+            // the channel is closed by the writer
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package simon.klausurcraft.services;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Debounced autosave: changes only mark the document dirty, and it is written once no further
+ * change arrived for the idle window.
+ *
+ * The snapshot is taken on the model thread (the one mutating the document, i.e. the FX thread)
+ * and then serialized on a single dedicated writer thread, so neither side sees the other's half-done
+ * work. Writes happen in snapshot order; {@link #flush()} writes synchronously (close, Ctrl+S).
+ *
+ * @param <S> snapshot type; {@code null} snapshots are skipped
+ */
+public final class AutosaveScheduler<S> {
+
+    /** Save state for the status bar. */
+    public enum State { SAVED, PENDING, SAVING, FAILED }
+
+    /** Serializes one snapshot on the writer thread. */
+    @FunctionalInterface
+    public interface Writer<S> {
+        void write(S snapshot) throws Exception;
+    }
+
+    private final Duration idle;
+    private final Executor modelThread;
+    private final Supplier<S> snapshot;
+    private final Writer<S> writer;
+    private final ScheduledExecutorService exec;
+
+    private volatile Consumer<State> listener = s -> {};
+    private ScheduledFuture<?> timer; // guarded by this
+    private long generation;          // bumped per change, guarded by this
+    private long written;             // latest generation on disk, guarded by this
+
+    public AutosaveScheduler(Duration idle, Executor modelThread, Supplier<S> snapshot, Writer<S> writer) {
+        this.idle = idle;
+        this.modelThread = modelThread;
+        this.snapshot = snapshot;
+        this.writer = writer;
+        this.exec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "xml-autosave");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Called from any thread, e.g. to forward to {@code Platform.runLater}. */
+    public void setListener(Consumer<State> listener) {
+        this.listener = listener == null ? s -> {} : listener;
+    }
+
+    /** Record a change (model thread); restarts the idle window. */
+    public void markDirty() {
+        boolean wasClean;
+        synchronized (this) {
+            if (exec.isShutdown()) return;
+            wasClean = generation == written;
+            generation++;
+            if (timer != null) timer.cancel(false);
+            timer = exec.schedule(() -> modelThread.execute(this::capture), idle.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (wasClean) listener.accept(State.PENDING); // once per burst, not per keystroke
+    }
+
+    /** Idle window elapsed: snapshot on the model thread, write on the writer thread. */
+    private void capture() {
+        long gen;
+        synchronized (this) {
+            gen = generation;
+            if (gen == written) return; // already flushed
+        }
+        S snap = snapshot.get();
+        exec.execute(() -> write(snap, gen));
+    }
+
+    /**
+     * Write pending changes now and wait for it (model thread). Returns false if the write failed;
+     * the changes then stay pending.
+     */
+    public boolean flush() {
+        long gen;
+        synchronized (this) {
+            if (timer != null) timer.cancel(false);
+            timer = null;
+            gen = generation;
+            if (gen == written) return true;
+        }
+        S snap = snapshot.get();
+        try {
+            Future<Boolean> f = exec.submit(() -> write(snap, gen));
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | RejectedExecutionException e) {
+            return false; // failed, or already closed
+        }
+    }
+
+    public synchronized boolean isDirty() {
+        return generation != written;
+    }
+
+    /** Flush and stop the writer thread. */
+    public void close() {
+        flush();
+        exec.shutdown();
+    }
+
+    private boolean write(S snap, long gen) {
+        if (snap != null) {
+            listener.accept(State.SAVING);
+            try {
+                writer.write(snap);
+            } catch (Exception e) {
+                System.err.println("[XML SAVE ERROR] " + e.getMessage());
+                listener.accept(State.FAILED);
+                return false;
+            }
+        }
+        boolean pending;
+        synchronized (this) {
+            written = Math.max(written, gen);
+            pending = generation != written;
+        }
+        listener.accept(pending ? State.PENDING : State.SAVED);
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package simon.klausurcraft.services;
+
+/**
+ * Minimal helpers for primitive {@code long[]} bitsets used by the point-sum DP.
+ * Bit i of a set stands for "sum i is reachable". Bits beyond the array are dropped silently.
+ */
+final class Bits {
+
+    private Bits() {}
+
+    /** Number of words needed to hold bits 0..maxBit. */
+    static int words(int maxBit) {
+        return (maxBit >>> 6) + 1;
+    }
+
+    static boolean get(long[] b, int i) {
+        int w = i >>> 6;
+        return i >= 0 && w < b.length && (b[w] & (1L << i)) != 0;
+    }
+
+    static void set(long[] b, int i) {
+        b[i >>> 6] |= 1L << i;
+    }
+
+    static void clear(long[] b, int i) {
+        b[i >>> 6] &= ~(1L << i);
+    }
+
+    static boolean isEmpty(long[] b) {
+        for (long w : b) if (w != 0) return false;
+        return true;
+    }
+
+    static int cardinality(long[] b) {
+        int n = 0;
+        for (long w : b) n += Long.bitCount(w);
+        return n;
+    }
+
+    /** Index of the next set bit at or after {@code from}, or -1. */
+    static int nextSetBit(long[] b, int from) {
+        if (from < 0) from = 0;
+        int w = from >>> 6;
+        if (w >= b.length) return -1;
+        long word = b[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == b.length) return -1;
+            word = b[w];
+        }
+    }
+
+    /** dst |= src. */
+    static void or(long[] dst, long[] src) {
+        int n = Math.min(dst.length, src.length);
+        for (int i = 0; i < n; i++) dst[i] |= src[i];
+    }
+
+    /** dst |= src &lt;&lt; shift. {@code src} and {@code dst} must not be the same array. */
+    static void shiftOr(long[] src, int shift, long[] dst) {
+        int wordShift = shift >>> 6;
+        int bitShift = shift & 63;
+        int last = Math.min(dst.length - 1, src.length - 1 + wordShift + (bitShift == 0 ? 0 : 1));
+        if (bitShift == 0) {
+            for (int i = last; i >= wordShift; i--) dst[i] |= src[i - wordShift];
+            return;
+        }
+        for (int i = last; i >= wordShift; i--) {
+            int j = i - wordShift;
+            long lo = j < src.length ? src[j] << bitShift : 0L;
+            long hi = j > 0 ? src[j - 1] >>> (64 - bitShift) : 0L;
+            dst[i] |= lo | hi;
+        }
+    }
+
+    /** dst |= { a + b | a in x, b in y } (sumset), iterating the sparser operand. */
+    static void sumsetOr(long[] x, long[] y, long[] dst) {
+        long[] sparse = x, dense = y;
+        if (cardinality(x) > cardinality(y)) { sparse = y; dense = x; }
+        for (int i = nextSetBit(sparse, 0); i >= 0; i = nextSetBit(sparse, i + 1)) {
+            if ((i >>> 6) >= dst.length) break;
+            shiftOr(dense, i, dst);
+        }
+    }
+}
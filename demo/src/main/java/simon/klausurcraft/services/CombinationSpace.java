@@ -0,0 +1,422 @@
+package simon.klausurcraft.services;
+
+import simon.klausurcraft.model.Difficulty;
+import simon.klausurcraft.model.SubtaskModel;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * All valid subtask combinations of one task and scope for a fixed target sum.
+ *
+ * Per difficulty group a suffix count table {@code C[i][k][s]} (number of k-subsets of items i.. with
+ * sum s) is built once in O(n * k * target). Enumeration walks the groups' subsets in lexicographic
+ * order and never enters a branch whose count is zero, so each next combination costs O(subtasks)
+ * instead of a search. The same counts weight the choices of {@link #sample(RandomGenerator)},
+ * which draws uniformly from the whole space without enumerating it.
+ *
+ * Counts are doubles: exact below 2^53, relative error ~1e-16 above. Immutable and thread-safe;
+ * iterators and spliterators are not.
+ */
+public final class CombinationSpace implements Iterable<List<SubtaskModel>> {
+
+    /** Upper bound on count table cells (doubles) per space, ~128 MB. */
+    static final long MAX_CELLS = 1L << 24;
+
+    private static final Difficulty[] DIFFS = Difficulty.values();
+
+    private final List<SubtaskModel> eligible;
+    private final int target; // in units of scale
+    private final PointScale scale;
+    private final Group[] groups = new Group[DIFFS.length];
+
+    // valid (easy, medium, hard) count triples with at least one combination
+    private final int[][] triples;
+    // per triple: medHard[r] = number of (medium, hard) subset pairs with sum r
+    private final double[][] medHard;
+    private final double[] weights;
+    private final double size;
+
+    private CombinationSpace(List<SubtaskModel> eligible, int[] points, Difficulty[] difficulties, int target,
+                             PointScale scale) {
+        this.eligible = eligible;
+        this.target = target;
+        this.scale = scale;
+
+        long cells = cells(points, difficulties, target);
+        if (cells > MAX_CELLS) {
+            throw new IllegalArgumentException("Combination space too large to index (" + cells + " cells)");
+        }
+        int cap = cap(difficulties);
+        for (Difficulty d : DIFFS) {
+            int n = 0;
+            for (int i = 0; i < points.length; i++) {
+                if (difficulties[i] == d && points[i] <= target) n++;
+            }
+            int[] pts = new int[n];
+            int[] origin = new int[n];
+            n = 0;
+            for (int i = 0; i < points.length; i++) {
+                if (difficulties[i] != d || points[i] > target) continue;
+                pts[n] = Math.max(0, points[i]);
+                origin[n++] = i;
+            }
+            groups[d.ordinal()] = new Group(pts, origin, Math.min(n, cap), target);
+        }
+        for (Group g : groups) g.build();
+
+        Group easy = groups[0], med = groups[1], hard = groups[2];
+        List<int[]> ts = new ArrayList<>();
+        List<double[]> mhs = new ArrayList<>();
+        List<Double> ws = new ArrayList<>();
+        double total = 0;
+        for (int e = 0; e <= easy.cap; e++) {
+            for (int m = Math.max(0, e - 2); m <= Math.min(med.cap, e + 2); m++) {
+                for (int h = Math.max(0, Math.max(e, m) - 2); h <= Math.min(hard.cap, Math.min(e, m) + 2); h++) {
+                    if (!PointCombination.distributionOk(e, m, h)) continue;
+                    double[] mh = convolve(med, m, hard, h, target);
+                    double w = 0;
+                    for (int se = 0; se <= target; se++) w += easy.count(0, e, se) * mh[target - se];
+                    if (w == 0) continue;
+                    ts.add(new int[]{e, m, h});
+                    mhs.add(mh);
+                    ws.add(w);
+                    total += w;
+                }
+            }
+        }
+        this.triples = ts.toArray(int[][]::new);
+        this.medHard = mhs.toArray(double[][]::new);
+        this.weights = ws.stream().mapToDouble(Double::doubleValue).toArray();
+        this.size = total;
+    }
+
+    /** Count table cells (doubles) a space for these subtasks and {@code target} allocates. */
+    static long cells(int[] points, Difficulty[] difficulties, int target) {
+        int cap = cap(difficulties);
+        long cells = 0;
+        for (Difficulty d : DIFFS) {
+            int n = 0;
+            for (int i = 0; i < points.length; i++) {
+                if (difficulties[i] == d && points[i] <= target) n++;
+            }
+            cells += (long) (n + 1) * (Math.min(n, cap) + 1) * (Math.max(0, target) + 1);
+        }
+        return cells;
+    }
+
+    /** Largest per-difficulty count any valid triple can use: the smallest group plus 2. */
+    private static int cap(Difficulty[] difficulties) {
+        int[] sizes = new int[DIFFS.length];
+        for (Difficulty d : difficulties) sizes[d.ordinal()]++;
+        return Math.min(sizes[0], Math.min(sizes[1], sizes[2])) + 2;
+    }
+
+    /** Space of the eligible subtasks (points and target in {@code scale} units); empty if not achievable. */
+    static CombinationSpace of(List<SubtaskModel> eligible, int[] points, Difficulty[] difficulties, int target,
+                               PointScale scale) {
+        return new CombinationSpace(eligible, points, difficulties, Math.max(0, target), scale);
+    }
+
+    /** Target sum in points. */
+    public BigDecimal target() { return scale.toPoints(target); }
+
+    /** Number of valid combinations (exact below 2^53). */
+    public double size() { return size; }
+
+    public boolean isEmpty() { return triples.length == 0; }
+
+    /** Lazily enumerates every valid combination once; subtasks in task order. */
+    @Override
+    public Iterator<List<SubtaskModel>> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /** Splits by count triple, so parallel streams spread over the difficulty mixes. */
+    @Override
+    public Spliterator<List<SubtaskModel>> spliterator() {
+        return new Cursor(0, triples.length);
+    }
+
+    public Stream<List<SubtaskModel>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /** One combination drawn uniformly at random from the whole space, or null if it is empty. */
+    public List<SubtaskModel> sample(RandomGenerator rnd) {
+        if (isEmpty()) return null;
+        int t = choose(weights, size, rnd);
+        int[] triple = triples[t];
+        Group easy = groups[0], med = groups[1], hard = groups[2];
+        double[] mh = medHard[t];
+
+        double[] byEasy = new double[target + 1];
+        for (int se = 0; se <= target; se++) byEasy[se] = easy.count(0, triple[0], se) * mh[target - se];
+        int se = choose(byEasy, weights[t], rnd);
+
+        int rest = target - se;
+        double[] byMed = new double[rest + 1];
+        for (int sm = 0; sm <= rest; sm++) byMed[sm] = med.count(0, triple[1], sm) * hard.count(0, triple[2], rest - sm);
+        int sm = choose(byMed, mh[rest], rnd);
+
+        return toSubtasks(
+                easy.sample(triple[0], se, rnd),
+                med.sample(triple[1], sm, rnd),
+                hard.sample(triple[2], rest - sm, rnd));
+    }
+
+    /** Index i with probability w[i] / total. */
+    private static int choose(double[] w, double total, RandomGenerator rnd) {
+        double r = rnd.nextDouble() * total;
+        int last = -1;
+        for (int i = 0; i < w.length; i++) {
+            if (w[i] == 0) continue;
+            last = i;
+            r -= w[i];
+            if (r < 0) return i;
+        }
+        return last; // rounding
+    }
+
+    /** Pairs of an m-subset of {@code a} and an h-subset of {@code b}, by combined sum 0..target. */
+    private static double[] convolve(Group a, int m, Group b, int h, int target) {
+        double[] out = new double[target + 1];
+        for (int x = 0; x <= target; x++) {
+            double ca = a.count(0, m, x);
+            if (ca == 0) continue;
+            for (int y = 0; x + y <= target; y++) out[x + y] += ca * b.count(0, h, y);
+        }
+        return out;
+    }
+
+    private List<SubtaskModel> toSubtasks(int[] easy, int[] med, int[] hard) {
+        int[] idx = new int[easy.length + med.length + hard.length];
+        int n = 0;
+        for (int i : easy) idx[n++] = groups[0].origin[i];
+        for (int i : med) idx[n++] = groups[1].origin[i];
+        for (int i : hard) idx[n++] = groups[2].origin[i];
+        Arrays.sort(idx);
+        SubtaskModel[] out = new SubtaskModel[idx.length];
+        for (int i = 0; i < idx.length; i++) out[i] = eligible.get(idx[i]);
+        return List.of(out);
+    }
+
+    /** Subtasks of one difficulty with their suffix count table. */
+    private static final class Group {
+        final int[] points;
+        final int[] origin;
+        final int cap;
+        final int target;
+        private double[] counts;
+
+        Group(int[] points, int[] origin, int cap, int target) {
+            this.points = points;
+            this.origin = origin;
+            this.cap = cap;
+            this.target = target;
+        }
+
+        void build() {
+            int n = points.length;
+            counts = new double[(n + 1) * (cap + 1) * (target + 1)];
+            counts[index(n, 0, 0)] = 1;
+            for (int i = n - 1; i >= 0; i--) {
+                int p = points[i];
+                for (int k = 0; k <= cap; k++) {
+                    int dst = index(i, k, 0), skip = index(i + 1, k, 0);
+                    System.arraycopy(counts, skip, counts, dst, target + 1);
+                    if (k == 0) continue;
+                    int take = index(i + 1, k - 1, 0);
+                    for (int s = p; s <= target; s++) counts[dst + s] += counts[take + s - p];
+                }
+            }
+        }
+
+        private int index(int i, int k, int s) {
+            return (i * (cap + 1) + k) * (target + 1) + s;
+        }
+
+        /** Number of k-subsets of items i.. with sum s. */
+        double count(int i, int k, int s) {
+            if (k < 0 || k > cap || s < 0 || s > target) return 0;
+            return counts[index(i, k, s)];
+        }
+
+        /** First item j >= from that can be taken into a k-subset of sum s of items j.., or -1. */
+        int nextTake(int from, int k, int s) {
+            for (int j = from; j < points.length; j++) {
+                if (count(j, k, s) == 0) return -1; // nothing left in this suffix
+                if (points[j] <= s && count(j + 1, k - 1, s - points[j]) > 0) return j;
+            }
+            return -1;
+        }
+
+        /** Uniform k-subset with sum s (item positions, ascending). */
+        int[] sample(int k, int s, RandomGenerator rnd) {
+            int[] out = new int[k];
+            int n = 0;
+            for (int i = 0; n < k; i++) {
+                double all = count(i, k - n, s);
+                double take = points[i] <= s ? count(i + 1, k - n - 1, s - points[i]) : 0;
+                if (take > 0 && rnd.nextDouble() * all < take) {
+                    out[n++] = i;
+                    s -= points[i];
+                }
+            }
+            return out;
+        }
+    }
+
+    /** k-subsets of one group with sum s in lexicographic order. */
+    private static final class Subsets {
+        final Group g;
+        final int k;
+        final int[] pos;
+        final int[] rem; // rem[d] = sum still needed before choosing pos[d]
+        private boolean started;
+
+        Subsets(Group g, int k, int s) {
+            this.g = g;
+            this.k = k;
+            this.pos = new int[k];
+            this.rem = new int[k + 1];
+            rem[0] = s;
+        }
+
+        /** Move to the next subset; false once exhausted. */
+        boolean advance() {
+            if (!started) {
+                started = true;
+                fill(0, 0);
+                return true;
+            }
+            for (int d = k - 1; d >= 0; d--) {
+                int j = g.nextTake(pos[d] + 1, k - d, rem[d]);
+                if (j >= 0) {
+                    take(d, j);
+                    fill(d + 1, j + 1);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // every step is feasible by construction of the counts
+        private void fill(int d, int from) {
+            for (; d < k; d++) {
+                int j = g.nextTake(from, k - d, rem[d]);
+                take(d, j);
+                from = j + 1;
+            }
+        }
+
+        private void take(int d, int j) {
+            pos[d] = j;
+            rem[d + 1] = rem[d] - g.points[j];
+        }
+    }
+
+    /** Enumeration state: triple, then easy sum, then medium sum, then an odometer over the three groups. */
+    private final class Cursor implements Spliterator<List<SubtaskModel>> {
+        private int triple;
+        private int end;
+        private int se = -1, sm = -1;
+        private Subsets easy, med, hard;
+
+        Cursor(int from, int end) {
+            this.triple = from;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<SubtaskModel>> action) {
+            if (!step()) return false;
+            action.accept(toSubtasks(easy.pos, med.pos, hard.pos));
+            return true;
+        }
+
+        private boolean step() {
+            if (hard != null) {
+                if (hard.advance()) return true;
+                if (med.advance()) return restartHard();
+                if (easy.advance()) {
+                    med = new Subsets(groups[1], triples[triple][1], sm);
+                    med.advance();
+                    return restartHard();
+                }
+            }
+            while (triple < end) {
+                if (nextSplit()) {
+                    int[] t = triples[triple];
+                    easy = new Subsets(groups[0], t[0], se);
+                    med = new Subsets(groups[1], t[1], sm);
+                    easy.advance();
+                    med.advance();
+                    return restartHard();
+                }
+                triple++;
+                se = -1;
+                sm = -1;
+            }
+            hard = null;
+            return false;
+        }
+
+        private boolean restartHard() {
+            hard = new Subsets(groups[2], triples[triple][2], target - se - sm);
+            return hard.advance();
+        }
+
+        /** Next (easy sum, medium sum) of the current triple with combinations in all three groups. */
+        private boolean nextSplit() {
+            int[] t = triples[triple];
+            Group e = groups[0], m = groups[1], h = groups[2];
+            double[] mh = medHard[triple];
+            if (se >= 0) {
+                int rest = target - se;
+                for (sm++; sm <= rest; sm++) {
+                    if (m.count(0, t[1], sm) > 0 && h.count(0, t[2], rest - sm) > 0) return true;
+                }
+            }
+            for (se++; se <= target; se++) {
+                if (e.count(0, t[0], se) == 0 || mh[target - se] == 0) continue;
+                int rest = target - se;
+                for (sm = 0; sm <= rest; sm++) {
+                    if (m.count(0, t[1], sm) > 0 && h.count(0, t[2], rest - sm) > 0) return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<List<SubtaskModel>> trySplit() {
+            // only untouched ranges split, so the prefix handed out keeps encounter order
+            if (hard != null || end - triple < 2) return null;
+            int mid = (triple + end) >>> 1;
+            Cursor prefix = new Cursor(triple, mid);
+            triple = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            double s = 0;
+            for (int t = triple; t < end; t++) s += weights[t];
+            return s >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) s;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package simon.klausurcraft.services;
+
+import simon.klausurcraft.model.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of the edits made since the pool file was last written ({@code <name>.journal}).
+ *
+ * Every edit is appended as one small record ({@code length, CRC32C, payload}) and forced to disk, so
+ * its cost does not depend on the pool size. The autosave compacts the journal once the pool file has
+ * been rewritten: records captured into that write are dropped and later ones are kept.
+ *
+ * Records address tasks, subtasks and variants by id and are idempotent (adds of existing ids and
+ * edits/deletes of missing ones are skipped). Replaying the whole journal onto a pool file that already
+ * contains a prefix of it (a crash between the file replace and the compaction) is therefore safe.
+ * A torn record at the end (crash during an append) ends the replay and is cut off.
+ *
+ * Appends run on the model thread, compaction on the writer thread; both are synchronized.
+ */
+final class EditJournal implements AutoCloseable {
+
+    private static final byte[] MAGIC = { 'K', 'C', 'J', '1' };
+
+    private static final byte TASK_TITLE = 1;
+    private static final byte SUBTASK_META = 2;
+    private static final byte SUBTASK_GROUP = 3;
+    private static final byte VARIANT = 4;
+    private static final byte ADD_TASK = 5;
+    private static final byte DELETE_TASK = 6;
+    private static final byte ADD_SUBTASK = 7;
+    private static final byte DELETE_SUBTASK = 8;
+    private static final byte ADD_VARIANT = 9;
+    private static final byte DELETE_VARIANT = 10;
+
+    private final Path file;
+    private FileChannel ch; // guarded by this
+    private boolean batched; // guarded by this: inside appendAll, force once at the end
+
+    private EditJournal(Path file, FileChannel ch) {
+        this.file = file;
+        this.ch = ch;
+    }
+
+    static Path pathFor(Path pool) {
+        return pool.resolveSibling(pool.getFileName() + ".journal");
+    }
+
+    /**
+     * Apply the journal of {@code pool} (if any) to {@code tasks} and open it for appending.
+     * Returns the journal and the number of records replayed.
+     */
+    static Opened open(Path pool, List<TaskModel> tasks) throws IOException {
+        Path file = pathFor(pool);
+        int replayed = 0;
+        long valid = MAGIC.length;
+        if (Files.exists(file)) {
+            try (InputStream raw = Files.newInputStream(file)) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(raw));
+                byte[] magic = new byte[MAGIC.length];
+                in.readFully(magic);
+                if (!Arrays.equals(magic, MAGIC)) throw new EOFException("not an edit journal");
+                Replay replay = new Replay(tasks);
+                CRC32C crc = new CRC32C();
+                while (true) {
+                    byte[] payload;
+                    try {
+                        int len = in.readInt();
+                        int sum = in.readInt();
+                        if (len <= 0 || len > 64 * 1024 * 1024) break;
+                        payload = new byte[len];
+                        in.readFully(payload);
+                        crc.reset();
+                        crc.update(payload);
+                        if ((int) crc.getValue() != sum) break;
+                    } catch (EOFException torn) {
+                        break;
+                    }
+                    try {
+                        replay.apply(new DataInputStream(new ByteArrayInputStream(payload)));
+                    } catch (IOException | RuntimeException bad) { // intact but unusable record
+                        replay.skipped++;
+                    }
+                    valid += 8 + payload.length;
+                    replayed++;
+                }
+                if (replay.skipped > 0) {
+                    System.err.println("[XML JOURNAL] " + replay.skipped + " of " + replayed
+                            + " records did not match the pool and were skipped");
+                }
+            } catch (EOFException badHeader) {
+                System.err.println("[XML JOURNAL] Ignoring " + file.getFileName() + " (no valid header)");
+                valid = 0;
+            }
+        }
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (valid == 0 || ch.size() < MAGIC.length) {
+            ch.truncate(0);
+            writeFully(ch, ByteBuffer.wrap(MAGIC), 0);
+            valid = MAGIC.length;
+        } else if (ch.size() > valid) {
+            System.err.println("[XML JOURNAL] Dropped a torn record at the end of " + file.getFileName());
+            ch.truncate(valid);
+        }
+        ch.force(true);
+        ch.position(valid);
+        return new Opened(new EditJournal(file, ch), replayed);
+    }
+
+    record Opened(EditJournal journal, int replayed) {}
+
+    // ----- records (model thread) -----
+
+    void taskTitle(TaskModel t) {
+        append(TASK_TITLE, t.getId(), t.getTitle());
+    }
+
+    void subtaskMeta(SubtaskModel st) {
+        append(SUBTASK_META, st.getParent().getId(), st.getId(), st.getPoints().toPlainString(),
+                st.getDifficulty().toString(), st.getEligibility().toString());
+    }
+
+    void subtaskGroup(SubtaskModel st) {
+        append(SUBTASK_GROUP, st.getParent().getId(), st.getId(), st.getGroup());
+    }
+
+    void variant(SubtaskModel st, VariantModel v) {
+        append(VARIANT, st.getParent().getId(), st.getId(), v.getId(), v.getText(), v.getSolution());
+    }
+
+    /** A new task with its default subtask and variant (see {@code XmlService.addTask}). */
+    void addTask(TaskModel t) {
+        SubtaskModel st = t.getSubtasks().get(0);
+        append(ADD_TASK, t.getId(), t.getTitle(), st.getId(), st.getVariants().get(0).getId());
+    }
+
+    void deleteTask(TaskModel t) {
+        append(DELETE_TASK, t.getId());
+    }
+
+    /** A new default subtask with its empty variant. */
+    void addSubtask(SubtaskModel st) {
+        append(ADD_SUBTASK, st.getParent().getId(), st.getId(), st.getVariants().get(0).getId());
+    }
+
+    void deleteSubtask(SubtaskModel st) {
+        append(DELETE_SUBTASK, st.getParent().getId(), st.getId());
+    }
+
+    void addVariant(SubtaskModel st, VariantModel v) {
+        append(ADD_VARIANT, st.getParent().getId(), st.getId(), v.getId());
+    }
+
+    void deleteVariant(SubtaskModel st, VariantModel v) {
+        append(DELETE_VARIANT, st.getParent().getId(), st.getId(), v.getId());
+    }
+
+    private void append(byte op, String... fields) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        try {
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeByte(op);
+            for (String f : fields) {
+                byte[] utf8 = (f == null ? "" : f).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+            byte[] bytes = payload.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+            ByteBuffer record = ByteBuffer.allocate(8 + bytes.length);
+            record.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).flip();
+            synchronized (this) {
+                if (ch == null) {
+                    System.err.println("[XML JOURNAL] " + file + " is not open; edit only kept until the next save");
+                    return;
+                }
+                while (record.hasRemaining()) ch.write(record);
+                if (!batched) ch.force(false);
+            }
+        } catch (IOException e) {
+            // the edit is still in the model and reaches the file with the next autosave
+            System.err.println("[XML JOURNAL] " + e.getMessage());
+        }
+    }
+
+    /** Append the records of several edits with a single force at the end (see {@link XmlService#begin()}). */
+    synchronized void appendAll(List<Consumer<EditJournal>> edits) {
+        batched = true;
+        try {
+            for (Consumer<EditJournal> e : edits) e.accept(this);
+        } finally {
+            batched = false;
+        }
+        try {
+            if (ch != null) ch.force(false);
+        } catch (IOException e) {
+            System.err.println("[XML JOURNAL] " + e.getMessage());
+        }
+    }
+
+    // ----- compaction (writer thread) -----
+
+    /** Current end of the journal; records before it are covered by a snapshot taken now. */
+    synchronized long mark() {
+        try {
+            return ch == null ? MAGIC.length : ch.position();
+        } catch (IOException e) {
+            return MAGIC.length;
+        }
+    }
+
+    /** The pool file now contains everything before {@code mark}: keep only the records after it. */
+    synchronized void compact(long mark) throws IOException {
+        if (ch == null) return;
+        long end = ch.position();
+        if (mark >= end) {
+            ch.truncate(MAGIC.length);
+            ch.position(MAGIC.length);
+            ch.force(true);
+            return;
+        }
+        ByteBuffer tail = ByteBuffer.allocate((int) (end - mark));
+        while (tail.hasRemaining()) {
+            if (ch.read(tail, mark + tail.position()) < 0) throw new EOFException(file.toString());
+        }
+        tail.flip();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, ByteBuffer.wrap(MAGIC), 0);
+            writeFully(out, tail, MAGIC.length);
+            out.force(true);
+        }
+        ch.close();
+        ch = null;
+        try {
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        } finally {
+            // the compacted journal, or the old one with all records if the move failed
+            ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ch.position(ch.size());
+        }
+    }
+
+    /** Close; an empty journal is deleted. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (ch == null) return;
+        boolean empty = ch.size() <= MAGIC.length;
+        ch.close();
+        ch = null;
+        if (empty) Files.deleteIfExists(file);
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) position += ch.write(buf, position);
+    }
+
+    /** Applies records to the loaded models; ids are looked up, never assumed. */
+    private static final class Replay {
+        private final List<TaskModel> tasks;
+        private final Map<String, TaskModel> byId = new HashMap<>();
+        int skipped;
+
+        Replay(List<TaskModel> tasks) {
+            this.tasks = tasks;
+            for (TaskModel t : tasks) byId.put(t.getId(), t);
+        }
+
+        void apply(DataInputStream in) throws IOException {
+            byte op = in.readByte();
+            String tid = str(in);
+            TaskModel t = byId.get(tid);
+            boolean applied = switch (op) {
+                case TASK_TITLE -> {
+                    String title = str(in);
+                    if (t != null) t.setTitle(title);
+                    yield t != null;
+                }
+                case ADD_TASK -> {
+                    String title = str(in), sid = str(in), vid = str(in);
+                    if (t != null) yield false;
+                    TaskModel nt = new TaskModel(tid, title);
+                    nt.getSubtasks().add(defaultSubtask(nt, sid, vid));
+                    tasks.add(nt);
+                    byId.put(tid, nt);
+                    yield true;
+                }
+                case DELETE_TASK -> {
+                    if (t == null) yield false;
+                    tasks.remove(t);
+                    byId.remove(t.getId());
+                    yield true;
+                }
+                default -> applySubtask(op, t, in);
+            };
+            if (!applied) skipped++;
+        }
+
+        private boolean applySubtask(byte op, TaskModel t, DataInputStream in) throws IOException {
+            String sid = str(in);
+            SubtaskModel st = t == null ? null : find(t.getSubtasks(), sid, SubtaskModel::getId);
+            switch (op) {
+                case ADD_SUBTASK -> {
+                    String vid = str(in);
+                    if (t == null || st != null) return false;
+                    t.getSubtasks().add(defaultSubtask(t, sid, vid));
+                    return true;
+                }
+                case SUBTASK_META -> {
+                    String points = str(in), difficulty = str(in), eligibility = str(in);
+                    if (st == null) return false;
+                    st.setPoints(new BigDecimal(points));
+                    st.setDifficulty(Difficulty.from(difficulty));
+                    st.setEligibility(Eligibility.from(eligibility));
+                    return true;
+                }
+                case SUBTASK_GROUP -> {
+                    String group = str(in);
+                    if (st == null) return false;
+                    st.setGroup(group);
+                    return true;
+                }
+                case DELETE_SUBTASK -> {
+                    return st != null && t.getSubtasks().remove(st);
+                }
+                default -> {
+                    return applyVariant(op, st, in);
+                }
+            }
+        }
+
+        private boolean applyVariant(byte op, SubtaskModel st, DataInputStream in) throws IOException {
+            String vid = str(in);
+            VariantModel v = st == null ? null : find(st.getVariants(), vid, VariantModel::getId);
+            switch (op) {
+                case VARIANT -> {
+                    String text = str(in), solution = str(in);
+                    if (v == null) return false;
+                    v.setText(text);
+                    v.setSolution(solution);
+                    return true;
+                }
+                case ADD_VARIANT -> {
+                    if (st == null || v != null) return false;
+                    st.getVariants().add(new VariantModel(vid, "", ""));
+                    return true;
+                }
+                case DELETE_VARIANT -> {
+                    return v != null && st.getVariants().remove(v);
+                }
+                default -> throw new IOException("Unknown journal record " + op);
+            }
+        }
+
+        private static SubtaskModel defaultSubtask(TaskModel t, String sid, String vid) {
+            SubtaskModel st = new SubtaskModel(t, sid, BigDecimal.ONE, Difficulty.EASY, Eligibility.BOTH);
+            st.getVariants().add(new VariantModel(vid, "", ""));
+            return st;
+        }
+
+        private static <T> T find(List<T> list, String id, Function<T, String> idOf) {
+            for (T item : list) if (idOf.apply(item).equals(id)) return item;
+            return null;
+        }
+
+        private static String str(DataInputStream in) throws IOException {
+            byte[] utf8 = new byte[in.readInt()];
+            in.readFully(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package simon.klausurcraft.services;
+
+import simon.klausurcraft.model.Difficulty;
+import simon.klausurcraft.model.GenerateScope;
+import simon.klausurcraft.model.SubtaskModel;
+import simon.klausurcraft.model.TaskModel;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Exam-wide point budget: distributes a target exam total over several selected tasks.
+ *
+ * Multi-choice knapsack over the tasks' achievable sums, run as a bitset DP over exam totals,
+ * so it costs O(tasks * options * total / 64). Totals are counted in one {@link PointScale} unit
+ * shared by all tasks and the target, so decimal points work as in {@link PointCombination}. Among all feasible allocations, reconstruction
+ * prefers shares close to an even split of the remaining budget.
+ *
+ * With {@link Mix#EXAM} the 1/3 difficulty rule is enforced on the whole exam instead of per task:
+ * a task may e.g. contribute only hard subtasks as long as the exam as a whole stays balanced.
+ * The DP then also tracks the (easy - medium, easy - hard) count difference of the partial exam.
+ * To keep this in milliseconds, each task's own counts may differ by at most {@code maxTaskSkew}
+ * and the partial exam by at most twice that; differences the remaining tasks can no longer bring
+ * back into range are pruned. Every returned allocation satisfies the rule exactly.
+ */
+public final class ExamBudgetSolver {
+
+    private ExamBudgetSolver() {}
+
+    /** Default bound on how unbalanced one task may be in {@link Mix#EXAM} mode. */
+    public static final int DEFAULT_TASK_SKEW = 3;
+
+    /** Where the 1/3 difficulty rule is enforced. */
+    public enum Mix { PER_TASK, EXAM }
+
+    /** One selected task with optional bounds (inclusive, null = unbounded) on its share. */
+    public record TaskBudget(TaskModel task, BigDecimal min, BigDecimal max) {
+        public TaskBudget(TaskModel task) { this(task, null, null); }
+
+        boolean allows(BigDecimal points) {
+            return points.signum() > 0
+                    && (min == null || points.compareTo(min) >= 0)
+                    && (max == null || points.compareTo(max) <= 0);
+        }
+    }
+
+    /** Allocated share of one task: its points and a concrete subtask combination for them. */
+    public record Share(TaskModel task, BigDecimal points, List<SubtaskModel> subtasks) {}
+
+    /**
+     * Allocate {@code total} points over {@code tasks} (result in input order).
+     * Returns empty if no allocation exists within the tasks' achievable sums and bounds.
+     */
+    public static Optional<List<Share>> solve(List<TaskBudget> tasks, GenerateScope scope, BigDecimal total, Mix mix) {
+        return solve(tasks, scope, total, mix, DEFAULT_TASK_SKEW);
+    }
+
+    /** As {@link #solve(List, GenerateScope, BigDecimal, Mix)}; {@code maxTaskSkew} only applies to {@link Mix#EXAM}. */
+    public static Optional<List<Share>> solve(List<TaskBudget> tasks, GenerateScope scope, BigDecimal total, Mix mix,
+                                              int maxTaskSkew) {
+        if (tasks.isEmpty() || total.signum() <= 0) return Optional.empty();
+        // one unit for all tasks and the total, so the total is always representable
+        List<BigDecimal> values = new ArrayList<>();
+        values.add(total);
+        for (TaskBudget tb : tasks) {
+            for (SubtaskModel st : tb.task().getSubtasks()) if (st.isEligibleFor(scope)) values.add(st.getPoints());
+        }
+        PointScale scale = PointScale.of(values);
+        int units = scale.toUnits(total);
+        return mix == Mix.EXAM
+                ? solveExamMix(tasks, scope, units, scale, Math.max(2, maxTaskSkew))
+                : solvePerTask(tasks, scope, units, scale);
+    }
+
+    // ----- per-task rule: options are the achievable sums of each task -----
+
+    private static Optional<List<Share>> solvePerTask(List<TaskBudget> tasks, GenerateScope scope, int total,
+                                                      PointScale scale) {
+        int n = tasks.size();
+        int words = Bits.words(total);
+        List<PointCombination.Feasibility> fs = new ArrayList<>(n);
+        long[][] options = new long[n][];
+        for (int i = 0; i < n; i++) {
+            TaskBudget tb = tasks.get(i);
+            PointCombination.Feasibility f = PointCombination.feasibility(tb.task(), scope);
+            fs.add(f);
+            options[i] = new long[words];
+            for (BigDecimal sum : f.sums()) {
+                int s = scale.toUnits(sum); // the shared unit divides every task's unit
+                if (s > total) break;
+                if (tb.allows(sum)) Bits.set(options[i], s);
+            }
+        }
+
+        long[][] reach = new long[n + 1][words];
+        Bits.set(reach[0], 0);
+        for (int i = 0; i < n; i++) Bits.sumsetOr(reach[i], options[i], reach[i + 1]);
+        if (!Bits.get(reach[n], total)) return Optional.empty();
+
+        int[] points = new int[n];
+        int t = total;
+        for (int i = n - 1; i >= 0; i--) {
+            int ideal = t / (i + 1);
+            int best = -1;
+            for (int o = Bits.nextSetBit(options[i], 0); o >= 0 && o <= t; o = Bits.nextSetBit(options[i], o + 1)) {
+                if (Bits.get(reach[i], t - o) && (best < 0 || Math.abs(o - ideal) < Math.abs(best - ideal))) best = o;
+            }
+            points[i] = best;
+            t -= best;
+        }
+
+        List<Share> shares = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            BigDecimal share = scale.toPoints(points[i]);
+            PointCombination.Pick pick = PointCombination.pickSubtasksWithDistribution(
+                    fs.get(i), share, PointCombination.DEFAULT_PICK_BUDGET);
+            if (pick == null || pick.timedOut()) return Optional.empty();
+            shares.add(new Share(tasks.get(i).task(), share, pick.subtasks()));
+        }
+        return Optional.of(shares);
+    }
+
+    // ----- exam-level rule: options are (difference vector, sum) pairs of each task -----
+
+    /** Per-task DP input for exam-level mixing. */
+    private static final class TaskOptions {
+        final List<SubtaskModel> eligible;
+        final FeasibilityTable.GroupTable[] groups = new FeasibilityTable.GroupTable[3];
+        final Map<Long, long[]> byDiff = new HashMap<>(); // packed (e - m, e - h) -> sums
+        int maxD1, maxD2, maxD3; // largest |e - m|, |e - h|, |m - h| over all options
+
+        TaskOptions(List<SubtaskModel> eligible) { this.eligible = eligible; }
+    }
+
+    private static Optional<List<Share>> solveExamMix(List<TaskBudget> tasks, GenerateScope scope, int total,
+                                                      PointScale scale, int skew) {
+        int n = tasks.size();
+        int words = Bits.words(total);
+        int window = 2 * skew;
+
+        TaskOptions[] opts = new TaskOptions[n];
+        for (int i = 0; i < n; i++) {
+            opts[i] = options(tasks.get(i), scope, total, scale, words, skew);
+            if (opts[i].byDiff.isEmpty()) return Optional.empty();
+        }
+
+        // suffix bounds: how far the remaining tasks can still move the difference vector
+        int[][] reachBack = new int[n + 1][3];
+        for (int i = n - 1; i >= 0; i--) {
+            reachBack[i][0] = reachBack[i + 1][0] + opts[i].maxD1;
+            reachBack[i][1] = reachBack[i + 1][1] + opts[i].maxD2;
+            reachBack[i][2] = reachBack[i + 1][2] + opts[i].maxD3;
+        }
+
+        List<Map<Long, long[]>> layers = new ArrayList<>(n + 1);
+        Map<Long, long[]> start = new HashMap<>();
+        long[] zero = new long[words];
+        Bits.set(zero, 0);
+        start.put(pack(0, 0), zero);
+        layers.add(start);
+        for (int i = 0; i < n; i++) {
+            Map<Long, long[]> next = new HashMap<>();
+            for (Map.Entry<Long, long[]> st : layers.get(i).entrySet()) {
+                int d1 = d1(st.getKey()), d2 = d2(st.getKey());
+                for (Map.Entry<Long, long[]> op : opts[i].byDiff.entrySet()) {
+                    int n1 = d1 + d1(op.getKey()), n2 = d2 + d2(op.getKey());
+                    int[] back = reachBack[i + 1];
+                    if (Math.abs(n1) > Math.min(window, 2 + back[0])
+                            || Math.abs(n2) > Math.min(window, 2 + back[1])
+                            || Math.abs(n1 - n2) > Math.min(window, 2 + back[2])) continue;
+                    long[] dst = next.computeIfAbsent(pack(n1, n2), k -> new long[words]);
+                    Bits.sumsetOr(st.getValue(), op.getValue(), dst);
+                }
+            }
+            layers.add(next);
+        }
+
+        // final state: exam-wide counts differ by at most 2 (the 1/3 rule for a non-empty exam)
+        long end = Long.MIN_VALUE;
+        int endSpread = Integer.MAX_VALUE;
+        for (Map.Entry<Long, long[]> st : layers.get(n).entrySet()) {
+            int d1 = d1(st.getKey()), d2 = d2(st.getKey());
+            int spread = Math.max(Math.abs(d1), Math.max(Math.abs(d2), Math.abs(d1 - d2)));
+            if (spread <= 2 && spread < endSpread && Bits.get(st.getValue(), total)) {
+                end = st.getKey();
+                endSpread = spread;
+            }
+        }
+        if (endSpread == Integer.MAX_VALUE) return Optional.empty();
+
+        Share[] shares = new Share[n];
+        long state = end;
+        int t = total;
+        for (int i = n - 1; i >= 0; i--) {
+            int ideal = t / (i + 1);
+            long bestPrev = 0, bestDiff = 0;
+            int best = -1;
+            for (Map.Entry<Long, long[]> op : opts[i].byDiff.entrySet()) {
+                long prev = pack(d1(state) - d1(op.getKey()), d2(state) - d2(op.getKey()));
+                long[] before = layers.get(i).get(prev);
+                if (before == null) continue;
+                long[] sums = op.getValue();
+                for (int o = Bits.nextSetBit(sums, 0); o >= 0 && o <= t; o = Bits.nextSetBit(sums, o + 1)) {
+                    if (Bits.get(before, t - o) && (best < 0 || Math.abs(o - ideal) < Math.abs(best - ideal))) {
+                        best = o;
+                        bestPrev = prev;
+                        bestDiff = op.getKey();
+                    }
+                }
+            }
+            shares[i] = new Share(tasks.get(i).task(), scale.toPoints(best), reconstruct(opts[i], bestDiff, best));
+            state = bestPrev;
+            t -= best;
+        }
+        return Optional.of(List.of(shares));
+    }
+
+    private static TaskOptions options(TaskBudget tb, GenerateScope scope, int total, PointScale scale,
+                                       int words, int skew) {
+        List<SubtaskModel> eligible = tb.task().getSubtasks().stream()
+                .filter(st -> st.isEligibleFor(scope))
+                .toList();
+        TaskOptions to = new TaskOptions(eligible);
+        for (Difficulty d : Difficulty.values()) {
+            int size = (int) eligible.stream().filter(st -> st.getDifficulty() == d).count();
+            int[] pts = new int[size];
+            int[] origin = new int[size];
+            int k = 0;
+            for (int i = 0; i < eligible.size(); i++) {
+                if (eligible.get(i).getDifficulty() != d) continue;
+                pts[k] = Math.max(0, scale.toUnits(eligible.get(i).getPoints()));
+                origin[k++] = i;
+            }
+            FeasibilityTable.GroupTable g = new FeasibilityTable.GroupTable(pts, origin, size);
+            g.build(words);
+            to.groups[d.ordinal()] = g;
+        }
+
+        FeasibilityTable.GroupTable easy = to.groups[0], med = to.groups[1], hard = to.groups[2];
+        long[] pair = new long[words];
+        long[] sums = new long[words];
+        for (int e = 0; e <= easy.cap; e++) {
+            if (easy.isEmpty(e)) continue;
+            for (int m = Math.max(0, e - skew); m <= Math.min(med.cap, e + skew); m++) {
+                if (med.isEmpty(m)) continue;
+                Arrays.fill(pair, 0L);
+                Bits.sumsetOr(easy.rows[e], med.rows[m], pair);
+                if (Bits.isEmpty(pair)) continue;
+                for (int h = Math.max(0, Math.max(e, m) - skew); h <= Math.min(hard.cap, Math.min(e, m) + skew); h++) {
+                    if (hard.isEmpty(h) || e + m + h == 0) continue;
+                    Arrays.fill(sums, 0L);
+                    Bits.sumsetOr(pair, hard.rows[h], sums);
+                    boolean any = false;
+                    for (int s = Bits.nextSetBit(sums, 0); s >= 0 && s <= total; s = Bits.nextSetBit(sums, s + 1)) {
+                        if (!tb.allows(scale.toPoints(s))) Bits.clear(sums, s); else any = true;
+                    }
+                    if (!any) continue;
+                    Bits.or(to.byDiff.computeIfAbsent(pack(e - m, e - h), key -> new long[words]), sums);
+                    to.maxD1 = Math.max(to.maxD1, Math.abs(e - m));
+                    to.maxD2 = Math.max(to.maxD2, Math.abs(e - h));
+                    to.maxD3 = Math.max(to.maxD3, Math.abs(m - h));
+                }
+            }
+        }
+        return to;
+    }
+
+    /** Concrete subtasks of one task for a chosen difference vector and sum. */
+    private static List<SubtaskModel> reconstruct(TaskOptions to, long diff, int sum) {
+        FeasibilityTable.GroupTable easy = to.groups[0], med = to.groups[1], hard = to.groups[2];
+        int d1 = d1(diff), d2 = d2(diff);
+        for (int e = 0; e <= easy.cap; e++) {
+            int m = e - d1, h = e - d2;
+            if (m < 0 || h < 0 || m > med.cap || h > hard.cap) continue;
+            int[] split = FeasibilityTable.split(easy.rows[e], med.rows[m], hard.rows[h], sum);
+            if (split == null) continue;
+            int[] counts = {e, m, h};
+            int[] picked = new int[e + m + h];
+            int k = 0;
+            for (int g = 0; g < 3; g++) {
+                for (int local : to.groups[g].reconstruct(counts[g], split[g])) picked[k++] = to.groups[g].origin[local];
+            }
+            Arrays.sort(picked);
+            List<SubtaskModel> out = new ArrayList<>(picked.length);
+            for (int i : picked) out.add(to.eligible.get(i));
+            return out;
+        }
+        throw new IllegalStateException("DP state without reconstruction");
+    }
+
+    private static long pack(int d1, int d2) {
+        return ((long) d1 << 32) | (d2 & 0xFFFFFFFFL);
+    }
+
+    private static int d1(long packed) { return (int) (packed >> 32); }
+
+    private static int d2(long packed) { return (int) packed; }
+}
@@ -0,0 +1,75 @@
+package simon.klausurcraft.services;
+
+import simon.klausurcraft.model.Difficulty;
+import simon.klausurcraft.model.GenerateScope;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of {@link FeasibilityTable}s keyed by (task id, scope, fingerprint).
+ *
+ * The fingerprint covers the ordered points and difficulties of the eligible subtasks, so a stale
+ * entry can never be hit; a hit is additionally verified against the full input. Only the integer
+ * table is cached, never SubtaskModel references, so reloaded models are not mixed with old ones.
+ * Thread-safe (all access is synchronized on the cache).
+ */
+final class FeasibilityCache {
+
+    static final int DEFAULT_CAPACITY = 2048;
+
+    record Key(String taskId, GenerateScope scope, long fingerprint) {}
+
+    private final Map<Key, FeasibilityTable> map;
+
+    FeasibilityCache(int capacity) {
+        this.map = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, FeasibilityTable> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Cached table for the given input, or a freshly built (and cached) one. */
+    FeasibilityTable get(String taskId, GenerateScope scope, int[] points, Difficulty[] diffs) {
+        Key key = new Key(taskId, scope, fingerprint(points, diffs));
+        synchronized (this) {
+            FeasibilityTable hit = map.get(key);
+            if (hit != null && hit.matches(points, diffs)) return hit;
+        }
+        // build outside the lock so parallel callers don't serialize on the DP
+        FeasibilityTable table = FeasibilityTable.build(points, diffs);
+        synchronized (this) {
+            map.put(key, table);
+        }
+        return table;
+    }
+
+    /** Drop every entry of a task (all scopes and fingerprints). */
+    synchronized void invalidate(String taskId) {
+        map.keySet().removeIf(k -> k.taskId().equals(taskId));
+    }
+
+    synchronized void clear() {
+        map.clear();
+    }
+
+    synchronized int size() {
+        return map.size();
+    }
+
+    static long fingerprint(int[] points, Difficulty[] diffs) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < points.length; i++) {
+            h = mix(h ^ ((long) points[i] << 2 | diffs[i].ordinal()));
+        }
+        return mix(h ^ points.length);
+    }
+
+    /** SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
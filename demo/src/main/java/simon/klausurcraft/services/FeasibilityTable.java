@@ -0,0 +1,332 @@
+package simon.klausurcraft.services;
+
+import simon.klausurcraft.model.Difficulty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bitset feasibility engine behind {@link PointCombination}.
+ *
+ * Subtasks are split by difficulty. Each group keeps a counted subset-sum table:
+ * bit s of row k is set iff exactly k subtasks of the group can reach s points.
+ * Rows are built with shift-and-OR per subtask, so no sum is ever boxed or hashed.
+ *
+ * A sum is achievable iff it can be split over an (easy, medium, hard) count triple that
+ * satisfies the 1/3 rule. The rule only accepts triples whose counts differ by at most 2,
+ * so each row index is capped at (smallest group size + 2).
+ *
+ * The same table reconstructs concrete selections ({@link #pick}). Each group stores a
+ * checkpoint of its rows every ~sqrt(n) subtasks, so a block is replayed on demand instead
+ * of keeping one row set per subtask.
+ */
+public final class FeasibilityTable {
+
+    private static final Difficulty[] DIFFS = Difficulty.values();
+
+    private final GroupTable[] groups = new GroupTable[DIFFS.length]; // by Difficulty.ordinal()
+    private final int[] points;
+    private final Difficulty[] difficulties;
+    private final int maxSum;
+    private final long[] achievable;
+    private volatile List<Integer> sums; // lazily boxed view of achievable
+
+    /** A reconstructed selection: indices into the build input, and whether its count is maximal. */
+    public record Selection(int[] indices, boolean maximal) {
+        /** The deadline passed before any selection was found; the sum may still be achievable. */
+        public static final Selection TIMED_OUT = new Selection(new int[0], false);
+
+        public boolean timedOut() { return indices.length == 0; }
+    }
+
+    private FeasibilityTable(int[] points, Difficulty[] difficulties) {
+        this.points = points;
+        this.difficulties = difficulties;
+        int[] sizes = new int[DIFFS.length];
+        for (Difficulty d : difficulties) sizes[d.ordinal()]++;
+        int minSize = Math.min(sizes[0], Math.min(sizes[1], sizes[2]));
+
+        int total = 0;
+        for (Difficulty d : DIFFS) {
+            int[] pts = new int[sizes[d.ordinal()]];
+            int[] origin = new int[pts.length];
+            int n = 0;
+            for (int i = 0; i < points.length; i++) {
+                if (difficulties[i] != d) continue;
+                // points are non-negative per UI; clamp anything else so the bitsets stay valid
+                pts[n] = Math.max(0, points[i]);
+                origin[n++] = i;
+            }
+            int cap = Math.min(pts.length, minSize + 2);
+            GroupTable g = new GroupTable(pts, origin, cap);
+            groups[d.ordinal()] = g;
+            total += g.maxSum;
+        }
+        this.maxSum = total;
+
+        int words = Bits.words(maxSum);
+        for (GroupTable g : groups) g.build(words);
+        this.achievable = combine(words);
+        Bits.clear(achievable, 0); // a selection must contain at least one subtask with points
+    }
+
+    /** Build the table for the given subtask points (integer units) and difficulties. */
+    public static FeasibilityTable build(int[] points, Difficulty[] difficulties) {
+        if (points.length != difficulties.length) {
+            throw new IllegalArgumentException("points and difficulties differ in length");
+        }
+        return new FeasibilityTable(points.clone(), difficulties.clone());
+    }
+
+    /** Number of subtasks the table was built from. */
+    public int size() { return points.length; }
+
+    /** True if the table was built from exactly these points and difficulties (in order). */
+    public boolean matches(int[] points, Difficulty[] difficulties) {
+        return Arrays.equals(this.points, points) && Arrays.equals(this.difficulties, difficulties);
+    }
+
+    /** Largest sum the table can represent. */
+    public int maxSum() { return maxSum; }
+
+    public boolean isAchievable(int sum) {
+        return sum > 0 && Bits.get(achievable, sum);
+    }
+
+    /** All achievable sums in ascending order (unmodifiable). */
+    public List<Integer> achievableSums() {
+        List<Integer> out = sums;
+        if (out == null) {
+            List<Integer> list = new ArrayList<>(Bits.cardinality(achievable));
+            for (int s = Bits.nextSetBit(achievable, 0); s >= 0 && s <= maxSum; s = Bits.nextSetBit(achievable, s + 1)) {
+                list.add(s);
+            }
+            sums = out = List.copyOf(list);
+        }
+        return out;
+    }
+
+    /**
+     * Reconstruct a selection hitting {@code target} with the largest possible subtask count.
+     *
+     * Count triples are probed from both ends: the first hit from the top is maximal, while hits
+     * from the bottom serve as best-so-far. If {@code deadlineNanos} (System.nanoTime based,
+     * {@code Long.MAX_VALUE} for none) passes, the best selection found so far is returned with
+     * {@code maximal == false}, or {@link Selection#TIMED_OUT} if nothing was found in time.
+     * Returns null if the sum is not achievable.
+     */
+    public Selection pick(int target, long deadlineNanos) {
+        if (!isAchievable(target)) return null;
+
+        List<int[]> triples = candidateTriples();
+        int lo = 0, hi = triples.size() - 1;
+        int[] best = null;
+        int[] bestSplit = null;
+        boolean timedOut = false;
+        while (lo <= hi) {
+            int[] split = splitFor(triples.get(lo), target);
+            if (split != null) {
+                return new Selection(reconstruct(triples.get(lo), split), true);
+            }
+            lo++;
+            if (lo > hi) break;
+            split = splitFor(triples.get(hi), target);
+            if (split != null) {
+                best = triples.get(hi);
+                bestSplit = split;
+            }
+            hi--;
+            if (System.nanoTime() - deadlineNanos > 0) { timedOut = lo <= hi; break; }
+        }
+        if (best == null) return timedOut ? Selection.TIMED_OUT : null;
+        // scanned everything without a top hit: the best bottom hit is the maximum
+        return new Selection(reconstruct(best, bestSplit), !timedOut);
+    }
+
+    /** All count triples with non-empty rows accepted by the 1/3 rule, largest count first. */
+    private List<int[]> candidateTriples() {
+        GroupTable easy = groups[Difficulty.EASY.ordinal()];
+        GroupTable med = groups[Difficulty.MEDIUM.ordinal()];
+        GroupTable hard = groups[Difficulty.HARD.ordinal()];
+        List<int[]> out = new ArrayList<>();
+        for (int e = 0; e <= easy.cap; e++) {
+            if (easy.isEmpty(e)) continue;
+            for (int m = Math.max(0, e - 2); m <= Math.min(med.cap, e + 2); m++) {
+                if (med.isEmpty(m)) continue;
+                for (int h = Math.max(0, Math.max(e, m) - 2); h <= Math.min(hard.cap, Math.min(e, m) + 2); h++) {
+                    if (!hard.isEmpty(h) && PointCombination.distributionOk(e, m, h)) out.add(new int[]{e, m, h});
+                }
+            }
+        }
+        out.sort((a, b) -> Integer.compare(b[0] + b[1] + b[2], a[0] + a[1] + a[2]));
+        return out;
+    }
+
+    /** Split {@code target} into per-group sums for the given count triple, or null if impossible. */
+    private int[] splitFor(int[] triple, int target) {
+        return split(groups[0].rows[triple[0]], groups[1].rows[triple[1]], groups[2].rows[triple[2]], target);
+    }
+
+    /** Split {@code target} into (easy, medium, hard) sums taken from the three rows, or null if impossible. */
+    static int[] split(long[] eRow, long[] mRow, long[] hRow, int target) {
+        long[] medHard = new long[Bits.words(target)];
+        Bits.sumsetOr(mRow, hRow, medHard);
+        for (int se = Bits.nextSetBit(eRow, 0); se >= 0 && se <= target; se = Bits.nextSetBit(eRow, se + 1)) {
+            if (!Bits.get(medHard, target - se)) continue;
+            int rest = target - se;
+            for (int sm = Bits.nextSetBit(mRow, 0); sm >= 0 && sm <= rest; sm = Bits.nextSetBit(mRow, sm + 1)) {
+                if (Bits.get(hRow, rest - sm)) return new int[]{se, sm, rest - sm};
+            }
+        }
+        return null;
+    }
+
+    private int[] reconstruct(int[] triple, int[] split) {
+        int[] out = new int[triple[0] + triple[1] + triple[2]];
+        int n = 0;
+        for (int g = 0; g < groups.length; g++) {
+            for (int local : groups[g].reconstruct(triple[g], split[g])) {
+                out[n++] = groups[g].origin[local];
+            }
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
+    private long[] combine(int words) {
+        return combine(groups[0].rows, groups[1].rows, groups[2].rows, words);
+    }
+
+    /**
+     * OR together the sumsets of all count triples accepted by the 1/3 rule ({@code rows[k]} =
+     * sums reachable with k subtasks of a group, up to its cap). The rule is symmetric, so the
+     * groups may be passed in any order.
+     */
+    static long[] combine(long[][] a, long[][] b, long[][] c, int words) {
+        return finish(accumulate(a, b, c.length, words), c, words);
+    }
+
+    /**
+     * First stage of {@link #combine}: per count h of the last group, the union of all a x b pair
+     * sumsets that form a valid triple with h. Each pair is convolved only once; the result does
+     * not depend on the last group's rows, only on how many there may be.
+     */
+    static long[][] accumulate(long[][] a, long[][] b, int lastRows, int words) {
+        long[][] perLast = new long[lastRows][];
+        long[] pair = new long[words];
+        for (int e = 0; e < a.length; e++) {
+            if (Bits.isEmpty(a[e])) continue;
+            for (int m = Math.max(0, e - 2); m <= Math.min(b.length - 1, e + 2); m++) {
+                if (Bits.isEmpty(b[m])) continue;
+                boolean computed = false;
+                for (int h = Math.max(0, Math.max(e, m) - 2); h <= Math.min(lastRows - 1, Math.min(e, m) + 2); h++) {
+                    if (!PointCombination.distributionOk(e, m, h)) continue;
+                    if (!computed) {
+                        Arrays.fill(pair, 0L);
+                        Bits.sumsetOr(a[e], b[m], pair);
+                        computed = true;
+                    }
+                    if (perLast[h] == null) perLast[h] = new long[words];
+                    Bits.or(perLast[h], pair);
+                }
+            }
+        }
+        return perLast;
+    }
+
+    /** Second stage of {@link #combine}: convolve each accumulator with the matching row of the last group. */
+    static long[] finish(long[][] perLast, long[][] c, int words) {
+        long[] out = new long[words];
+        for (int h = 0; h < Math.min(perLast.length, c.length); h++) {
+            if (perLast[h] != null && !Bits.isEmpty(c[h])) Bits.sumsetOr(perLast[h], c[h], out);
+        }
+        return out;
+    }
+
+    /** Counted subset-sum rows for one difficulty group. */
+    static final class GroupTable {
+        final int[] points;
+        final int[] origin; // index of each subtask in the build input
+        final int cap;
+        final int maxSum;
+        final int block;
+        long[][] rows; // rows[k] = sums reachable with exactly k subtasks of this group
+        long[][][] checkpoints; // checkpoints[b] = rows before subtask b * block
+
+        GroupTable(int[] points, int[] origin, int cap) {
+            this.points = points;
+            this.origin = origin;
+            this.cap = cap;
+            this.block = Math.max(1, (int) Math.ceil(Math.sqrt(points.length)));
+            // upper bound: the cap largest subtasks
+            int[] sorted = points.clone();
+            Arrays.sort(sorted);
+            int s = 0;
+            for (int i = 0; i < cap; i++) s += sorted[sorted.length - 1 - i];
+            this.maxSum = s;
+        }
+
+        void build(int words) {
+            rows = new long[cap + 1][words];
+            checkpoints = new long[(points.length + block - 1) / block][][];
+            Bits.set(rows[0], 0);
+            for (int i = 0; i < points.length; i++) {
+                if (i % block == 0) checkpoints[i / block] = copyRows(rows, Math.min(i, cap));
+                apply(rows, points[i], Math.min(i, cap - 1));
+            }
+        }
+
+        /** Add one subtask of {@code p} points to rows 0..top (top-down so each subtask is used once). */
+        private static void apply(long[][] rows, int p, int top) {
+            for (int k = top; k >= 0; k--) Bits.shiftOr(rows[k], p, rows[k + 1]);
+        }
+
+        private static long[][] copyRows(long[][] rows, int upTo) {
+            return copyRows(rows, upTo, rows.length - 1, rows[0].length);
+        }
+
+        /** Copy rows 0..maxRow truncated to {@code words}; rows above {@code upTo} are known to be empty. */
+        private static long[][] copyRows(long[][] rows, int upTo, int maxRow, int words) {
+            long[][] copy = new long[maxRow + 1][];
+            for (int k = 0; k <= maxRow; k++) {
+                copy[k] = k <= upTo ? Arrays.copyOf(rows[k], words) : new long[words];
+            }
+            return copy;
+        }
+
+        /**
+         * Local indices of {@code k} subtasks summing to {@code s}; (k, s) must be set in {@link #rows}.
+         * Walks subtasks backwards, replaying one block at a time from its checkpoint: a subtask is
+         * skipped whenever the rows before it still contain (k, s), otherwise it must be taken.
+         */
+        int[] reconstruct(int k, int s) {
+            int[] out = new int[k];
+            int n = 0;
+            for (int b = checkpoints.length - 1; b >= 0 && k > 0; b--) {
+                int start = b * block;
+                int end = Math.min(points.length, start + block);
+                // only rows 0..k and sums 0..s matter for the rest of the walk
+                int words = Bits.words(s);
+                long[][][] layers = new long[end - start + 1][][];
+                layers[0] = copyRows(checkpoints[b], Math.min(start, k), k, words);
+                for (int i = start; i < end; i++) {
+                    long[][] next = copyRows(layers[i - start], Math.min(i, k), k, words);
+                    apply(next, points[i], Math.min(i, k - 1));
+                    layers[i - start + 1] = next;
+                }
+                for (int i = end - 1; i >= start && k > 0; i--) {
+                    if (Bits.get(layers[i - start][k], s)) continue;
+                    out[n++] = i;
+                    k--;
+                    s -= points[i];
+                }
+            }
+            return out;
+        }
+
+        boolean isEmpty(int k) {
+            return k > cap || Bits.isEmpty(rows[k]);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package simon.klausurcraft.services;
+
+import simon.klausurcraft.model.GenerateScope;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * {@link IncrementalFeasibility} instances (with their point unit) of tasks that are being edited.
+ *
+ * A task is "touched" by its first subtask edit; only touched tasks get a tracker (built on the next
+ * achievable-sum query), so tasks that are never edited keep using the plain cached tables.
+ * Bounded LRU over (task id, scope). Thread-safe (synchronized on the registry).
+ */
+final class FeasibilityTrackers {
+
+    static final int DEFAULT_CAPACITY = 64;
+
+    record Key(String taskId, GenerateScope scope) {}
+
+    private final Set<String> touched = new HashSet<>();
+    private final Map<Key, PointCombination.Incremental> map;
+
+    FeasibilityTrackers(int capacity) {
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, PointCombination.Incremental> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized void touch(String taskId) {
+        touched.add(taskId);
+    }
+
+    synchronized boolean isTouched(String taskId) {
+        return touched.contains(taskId);
+    }
+
+    /** Existing trackers of a task (any scope). */
+    synchronized List<Map.Entry<Key, PointCombination.Incremental>> of(String taskId) {
+        List<Map.Entry<Key, PointCombination.Incremental>> out = new ArrayList<>();
+        for (var e : map.entrySet()) if (e.getKey().taskId().equals(taskId)) out.add(Map.entry(e.getKey(), e.getValue()));
+        return out;
+    }
+
+    /** Tracker for (task, scope), built with {@code build} outside the lock if absent. */
+    PointCombination.Incremental get(String taskId, GenerateScope scope, Supplier<PointCombination.Incremental> build) {
+        Key key = new Key(taskId, scope);
+        synchronized (this) {
+            PointCombination.Incremental hit = map.get(key);
+            if (hit != null) return hit;
+        }
+        PointCombination.Incremental built = build.get();
+        synchronized (this) {
+            // another thread may have won; keep the first so edits are applied to one instance
+            PointCombination.Incremental prev = map.putIfAbsent(key, built);
+            return prev != null ? prev : built;
+        }
+    }
+
+    synchronized void put(String taskId, GenerateScope scope, PointCombination.Incremental tracker) {
+        map.put(new Key(taskId, scope), tracker);
+    }
+
+    synchronized void remove(Key key) {
+        map.remove(key);
+    }
+
+    synchronized void invalidate(String taskId) {
+        touched.remove(taskId);
+        map.keySet().removeIf(k -> k.taskId().equals(taskId));
+    }
+
+    synchronized void clear() {
+        touched.clear();
+        map.clear();
+    }
+}
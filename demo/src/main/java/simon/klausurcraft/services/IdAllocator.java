@@ -0,0 +1,48 @@
+package simon.klausurcraft.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * Next free numeric id per parent (the pool for tasks, a task for subtasks, a subtask for variants).
+ *
+ * The children of a parent are scanned once, on its first allocation; afterwards the highest id is
+ * kept in memory, so each allocation is O(1). Ids are never reused, even after a delete. They are
+ * zero-padded to {@link #MIN_WIDTH} digits and simply grow wider past 9999 (the XSD allows any
+ * number of digits). Parents are held weakly, so deleted tasks and subtasks do not pin their
+ * counters. Not thread-safe: used on the model thread only.
+ */
+final class IdAllocator {
+
+    static final int MIN_WIDTH = 4;
+
+    private final Map<Object, long[]> highest = new WeakHashMap<>();
+
+    /** Forget all counters (a new pool was loaded). */
+    void clear() {
+        highest.clear();
+    }
+
+    /** Next id among {@code siblings}, the current children of {@code parent}. */
+    <T> String next(Object parent, List<T> siblings, Function<T, String> id) {
+        long[] max = highest.computeIfAbsent(parent, p -> new long[] { scan(siblings, id) });
+        return format(++max[0]);
+    }
+
+    private static <T> long scan(List<T> siblings, Function<T, String> id) {
+        long max = 0;
+        for (T sibling : siblings) {
+            try {
+                max = Math.max(max, Long.parseLong(id.apply(sibling)));
+            } catch (NumberFormatException ignored) {}
+        }
+        return max;
+    }
+
+    static String format(long n) {
+        String digits = Long.toString(n);
+        return digits.length() >= MIN_WIDTH ? digits : "0".repeat(MIN_WIDTH - digits.length()) + digits;
+    }
+}
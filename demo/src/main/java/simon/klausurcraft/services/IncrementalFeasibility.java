@@ -0,0 +1,220 @@
+package simon.klausurcraft.services;
+
+import simon.klausurcraft.model.Difficulty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Achievable point sums of one task and scope, maintained under single-subtask edits.
+ *
+ * Each difficulty group keeps a counting 0/1 knapsack: {@code c[k][s]} = number of k-subsets with
+ * sum s (mod 2^61 - 1). Adding a subtask is the usual DP step; removing one runs the step backwards,
+ * which is what counts allow and plain bitsets do not. Either costs O(rows * group sum) instead of the
+ * O(n * rows * sum) rebuild. Rows are kept up to (smallest group size + 2 + {@link #SLACK}); only when
+ * the smallest group outgrows that are the groups rebuilt from the member list.
+ *
+ * Combining the groups into achievable sums is the expensive part. The first stage (pairs of the two
+ * other groups, see {@link FeasibilityTable#accumulate}) is cached per "last" group, so repeated edits
+ * within one difficulty only redo the final convolution with that group's rows.
+ *
+ * A count can only read 0 by accident with probability ~2^-61 per cell. Thread-safe (synchronized).
+ */
+public final class IncrementalFeasibility {
+
+    /** Extra rows beyond the current cap, so growing the smallest group rarely forces a rebuild. */
+    static final int SLACK = 4;
+
+    private static final long P = (1L << 61) - 1;
+    private static final Difficulty[] DIFFS = Difficulty.values();
+
+    private record Member(int points, Difficulty difficulty) {}
+
+    private final Map<String, Member> members = new HashMap<>();
+    private final Group[] groups = new Group[DIFFS.length];
+    private int rows;          // rows kept per group (k = 0..rows-1)
+    private long fingerprint;  // order-independent hash of the members
+    private List<Integer> sums; // memoized until the next change
+    private final long[][][] bitRows = new long[DIFFS.length][][];   // per group, null = stale
+    private final long[][][] perLast = new long[DIFFS.length][][];   // accumulate() of the other two groups
+    private int words;
+    private int lastEdited = Difficulty.HARD.ordinal();
+
+    private IncrementalFeasibility() {}
+
+    /** Build from the eligible subtasks (ids, integer points and difficulties in any order). */
+    public static IncrementalFeasibility of(String[] ids, int[] points, Difficulty[] difficulties) {
+        if (ids.length != points.length || points.length != difficulties.length) {
+            throw new IllegalArgumentException("ids, points and difficulties differ in length");
+        }
+        IncrementalFeasibility f = new IncrementalFeasibility();
+        for (int i = 0; i < ids.length; i++) {
+            Member m = new Member(Math.max(0, points[i]), difficulties[i]);
+            if (f.members.put(ids[i], m) != null) throw new IllegalArgumentException("duplicate id " + ids[i]);
+            f.fingerprint += hash(ids[i], m);
+        }
+        f.rebuild();
+        return f;
+    }
+
+    /** Add a subtask, or update it if the id is already present. */
+    public synchronized void put(String id, int points, Difficulty difficulty) {
+        Member m = new Member(Math.max(0, points), difficulty);
+        Member old = members.get(id);
+        if (m.equals(old)) return;
+        if (old != null) removeMember(id, old);
+        members.put(id, m);
+        fingerprint += hash(id, m);
+        groups[m.difficulty().ordinal()].add(m.points());
+        edited(m.difficulty().ordinal());
+        changed();
+    }
+
+    /** Remove a subtask; no-op if absent. */
+    public synchronized void remove(String id) {
+        Member old = members.get(id);
+        if (old == null) return;
+        removeMember(id, old);
+        changed();
+    }
+
+    public synchronized boolean contains(String id) {
+        return members.containsKey(id);
+    }
+
+    public synchronized int size() {
+        return members.size();
+    }
+
+    /** True if the members are exactly these subtasks (order ignored). */
+    public synchronized boolean matches(String[] ids, int[] points, Difficulty[] difficulties) {
+        if (ids.length != members.size()) return false;
+        long h = 0;
+        for (int i = 0; i < ids.length; i++) h += hash(ids[i], new Member(Math.max(0, points[i]), difficulties[i]));
+        return h == fingerprint;
+    }
+
+    /** All achievable sums in ascending order (unmodifiable), same semantics as {@link FeasibilityTable}. */
+    public synchronized List<Integer> achievableSums() {
+        if (sums != null) return sums;
+        int total = 0;
+        for (Group g : groups) total += g.sum;
+        if (Bits.words(total) > words) {
+            // bitsets grow in steps, so accumulators survive most edits
+            words = Math.max(Bits.words(total), words * 2);
+            Arrays.fill(bitRows, null);
+            Arrays.fill(perLast, null);
+        }
+        for (int d = 0; d < DIFFS.length; d++) {
+            // rows above the stored ones cannot be part of a valid triple
+            if (bitRows[d] == null) bitRows[d] = groups[d].bitRows(Math.min(groups[d].n, rows - 1), words);
+        }
+        int last = lastEdited;
+        if (perLast[last] == null) {
+            perLast[last] = FeasibilityTable.accumulate(bitRows[(last + 1) % 3], bitRows[(last + 2) % 3], rows, words);
+        }
+
+        long[] achievable = FeasibilityTable.finish(perLast[last], bitRows[last], words);
+        Bits.clear(achievable, 0); // a selection must contain at least one subtask with points
+        List<Integer> out = new ArrayList<>(Bits.cardinality(achievable));
+        for (int s = Bits.nextSetBit(achievable, 0); s >= 0; s = Bits.nextSetBit(achievable, s + 1)) out.add(s);
+        return sums = List.copyOf(out);
+    }
+
+    private void removeMember(String id, Member old) {
+        members.remove(id);
+        fingerprint -= hash(id, old);
+        groups[old.difficulty().ordinal()].remove(old.points());
+        edited(old.difficulty().ordinal());
+    }
+
+    /** Group d changed: its bit rows and every accumulator built from it are stale. */
+    private void edited(int d) {
+        bitRows[d] = null;
+        for (int g = 0; g < DIFFS.length; g++) if (g != d) perLast[g] = null;
+        lastEdited = d;
+    }
+
+    private void changed() {
+        sums = null;
+        int minSize = Integer.MAX_VALUE;
+        for (Group g : groups) minSize = Math.min(minSize, g.n);
+        if (minSize + 2 >= rows) rebuild();
+    }
+
+    private void rebuild() {
+        int[] sizes = new int[DIFFS.length];
+        for (Member m : members.values()) sizes[m.difficulty().ordinal()]++;
+        rows = Math.min(sizes[0], Math.min(sizes[1], sizes[2])) + 3 + SLACK;
+        for (int d = 0; d < DIFFS.length; d++) groups[d] = new Group(rows);
+        for (Member m : members.values()) groups[m.difficulty().ordinal()].add(m.points());
+        Arrays.fill(bitRows, null);
+        Arrays.fill(perLast, null);
+        sums = null;
+    }
+
+    private static long hash(String id, Member m) {
+        long z = id.hashCode() * 0x9E3779B97F4A7C15L ^ ((long) m.points() << 2 | m.difficulty().ordinal());
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Counting knapsack of one group, rows k = 0..c.length-1 (higher k are dropped). */
+    private static final class Group {
+        long[][] c;
+        int n;   // members
+        int sum; // total points, so c[k][s] == 0 for s > sum
+
+        Group(int rows) {
+            c = new long[rows][16];
+            c[0][0] = 1;
+        }
+
+        void add(int p) {
+            ensureWidth(sum + p + 1);
+            int top = Math.min(n + 1, c.length - 1);
+            for (int k = top; k >= 1; k--) {
+                long[] dst = c[k], src = c[k - 1];
+                for (int s = sum + p; s >= p; s--) {
+                    long v = dst[s] + src[s - p];
+                    dst[s] = v >= P ? v - P : v;
+                }
+            }
+            n++;
+            sum += p;
+        }
+
+        void remove(int p) {
+            int top = Math.min(n, c.length - 1);
+            for (int k = 1; k <= top; k++) {
+                long[] dst = c[k], src = c[k - 1]; // src already holds the reduced row k-1
+                for (int s = p; s <= sum; s++) {
+                    long v = dst[s] - src[s - p];
+                    dst[s] = v < 0 ? v + P : v;
+                }
+            }
+            n--;
+            sum -= p;
+        }
+
+        private void ensureWidth(int width) {
+            if (width <= c[0].length) return;
+            int w = Math.max(width, c[0].length * 2);
+            for (int k = 0; k < c.length; k++) c[k] = Arrays.copyOf(c[k], w);
+        }
+
+        /** Bitset rows 0..cap: bit s of row k set iff some k-subset sums to s. */
+        long[][] bitRows(int cap, int words) {
+            long[][] out = new long[cap + 1][words];
+            for (int k = 0; k <= cap; k++) {
+                long[] row = c[k];
+                for (int s = 0; s <= sum; s++) if (row[s] != 0) Bits.set(out[k], s);
+            }
+            return out;
+        }
+    }
+}
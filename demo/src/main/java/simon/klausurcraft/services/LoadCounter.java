@@ -0,0 +1,58 @@
+package simon.klausurcraft.services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one load over all its files (which may be read in parallel), reported to a
+ * {@link XmlService.LoadProgress}. The streams it wraps also make reading cancellable: once the
+ * reading thread is interrupted, the next read fails with an {@link InterruptedIOException}.
+ */
+final class LoadCounter {
+
+    static final LoadCounter NONE = new LoadCounter(XmlService.LoadProgress.NONE, 0);
+
+    private final XmlService.LoadProgress listener;
+    private final long totalBytes;
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicInteger tasks = new AtomicInteger();
+
+    LoadCounter(XmlService.LoadProgress listener, long totalBytes) {
+        this.listener = listener;
+        this.totalBytes = totalBytes;
+    }
+
+    void bytes(long n) {
+        listener.update(bytes.addAndGet(n), totalBytes, tasks.get());
+    }
+
+    void tasks(int n) {
+        listener.update(bytes.get(), totalBytes, tasks.addAndGet(n));
+    }
+
+    InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override public int read() throws IOException {
+                checkInterrupt();
+                int b = super.read();
+                if (b >= 0) bytes(1);
+                return b;
+            }
+
+            @Override public int read(byte[] buf, int off, int len) throws IOException {
+                checkInterrupt();
+                int n = super.read(buf, off, len);
+                if (n > 0) bytes(n);
+                return n;
+            }
+        };
+    }
+
+    private static void checkInterrupt() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Loading cancelled");
+    }
+}
@@ -5,7 +5,10 @@ import simon.klausurcraft.model.SubtaskModel;
 import simon.klausurcraft.model.TaskModel;
 import simon.klausurcraft.model.GenerateScope;
 
-import java.util.*;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -13,111 +16,252 @@ import java.util.stream.Collectors;
  * that (approximately) respect the 1/3 difficulty distribution rule.
  *
  * Rule:
- *  - Use integer points only.
  *  - Distribution target per category = round(N/3), tolerance ±1 per category.
+ *
+ * Points may be decimals (e.g. 1.5). The DP runs on integers in the task's {@link PointScale}
+ * unit, the largest decimal dividing all eligible points, and sums are returned as decimals.
+ *
+ * Achievable sums come from {@link FeasibilityTable}, which keeps every reachable
+ * (easy, medium, hard) count per sum instead of only the largest one. The picker
+ * reconstructs from the same table, so both stay pseudo-polynomial. Tables are
+ * kept in a bounded LRU cache keyed by (task id, scope, fingerprint of the
+ * eligible points/difficulties), so reopening the generate dialog is cheap.
+ *
+ * Tasks whose subtasks are edited switch to an {@link IncrementalFeasibility} per scope:
+ * {@link XmlService} reports each add/change/remove, and the achievable sums are updated
+ * in O(table) instead of being rebuilt.
  */
 public final class PointCombination {
 
     private PointCombination() {}
 
-    /** Return all achievable integer sums for a task respecting eligibility and distribution (non-empty). */
-    public static List<Integer> achievablePointSums(TaskModel task, GenerateScope scope) {
-        List<SubtaskModel> eligible = task.getSubtasks().stream()
+    private static final FeasibilityCache CACHE = new FeasibilityCache(FeasibilityCache.DEFAULT_CAPACITY);
+    private static final FeasibilityTrackers TRACKERS = new FeasibilityTrackers(FeasibilityTrackers.DEFAULT_CAPACITY);
+
+    /** Default wall-clock budget for {@link #pickSubtasksWithDistribution(List, BigDecimal)}. */
+    public static final Duration DEFAULT_PICK_BUDGET = Duration.ofSeconds(2);
+
+    /** Feasibility table of a task for one scope, the eligible subtasks it was built from and its point unit. */
+    public record Feasibility(List<SubtaskModel> eligible, FeasibilityTable table, PointScale scale) {
+        /** Achievable sums in points, ascending. */
+        public List<BigDecimal> sums() { return toPoints(table.achievableSums(), scale); }
+
+        public boolean isAchievable(BigDecimal sum) {
+            return scale.isMultiple(sum) && table.isAchievable(scale.toUnits(sum));
+        }
+    }
+
+    /** A picked combination; {@code maximal} is false if the budget ran out before the largest count was proven. */
+    public record Pick(List<SubtaskModel> subtasks, boolean maximal) {
+        /** The budget ran out before any combination was found, although the sum is achievable. */
+        public static final Pick TIMED_OUT = new Pick(List.of(), false);
+
+        public boolean timedOut() { return subtasks.isEmpty(); }
+    }
+
+    /** Incremental achievable sums of one task and scope, in units of {@code scale}. */
+    public record Incremental(PointScale scale, IncrementalFeasibility sums) {
+        public List<BigDecimal> achievableSums() { return toPoints(sums.achievableSums(), scale); }
+    }
+
+    /**
+     * Immutable DP input of one task and scope (eligible points in {@code scale} units and
+     * difficulties, in order). Taken on the FX thread, it can be handed to worker threads
+     * while the model keeps changing.
+     */
+    public record Snapshot(String taskId, GenerateScope scope, String[] subtaskIds, int[] points,
+                           Difficulty[] difficulties, PointScale scale) {}
+
+    /** Feasibility table of a task's eligible subtasks, served from the result cache when unchanged. */
+    public static Feasibility feasibility(TaskModel task, GenerateScope scope) {
+        List<SubtaskModel> eligible = eligible(task, scope);
+        Snapshot s = snapshot(task.getId(), scope, eligible);
+        return new Feasibility(List.copyOf(eligible), table(s), s.scale());
+    }
+
+    /** Capture the DP input of a task; cheap, O(number of subtasks). */
+    public static Snapshot snapshot(TaskModel task, GenerateScope scope) {
+        return snapshot(task.getId(), scope, eligible(task, scope));
+    }
+
+    private static Snapshot snapshot(String taskId, GenerateScope scope, List<SubtaskModel> eligible) {
+        String[] ids = new String[eligible.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = eligible.get(i).getId();
+        PointScale scale = scale(eligible);
+        return new Snapshot(taskId, scope, ids, points(eligible, scale), difficulties(eligible), scale);
+    }
+
+    // tables hold integer units only, so pools with the same scaled points share one entry
+    private static FeasibilityTable table(Snapshot s) {
+        return CACHE.get(s.taskId(), s.scope(), s.points(), s.difficulties());
+    }
+
+    private static List<SubtaskModel> eligible(TaskModel task, GenerateScope scope) {
+        return task.getSubtasks().stream()
             .filter(st -> st.isEligibleFor(scope))
             .collect(Collectors.toList());
+    }
 
-        if (eligible.isEmpty()) return List.of();
-
-        int max = eligible.stream().mapToInt(st -> st.getPoints().intValue()).sum();
-        Set<Integer> sums = new TreeSet<>();
-
-        Map<Integer, FeasibleDist> dp = new HashMap<>();
-        dp.put(0, new FeasibleDist(0,0,0,0));
-
-        for (SubtaskModel st : eligible) {
-            int pts = st.getPoints().intValue();
-            Difficulty d = st.getDifficulty();
-            Map<Integer, FeasibleDist> next = new HashMap<>(dp);
-            for (Map.Entry<Integer, FeasibleDist> e : dp.entrySet()) {
-                int ns = e.getKey() + pts;
-                FeasibleDist fd = e.getValue().add(d);
-                FeasibleDist prev = next.get(ns);
-                if (prev == null || fd.count > prev.count) {
-                    next.put(ns, fd);
-                }
-            }
-            dp = next;
-        }
+    private static Feasibility feasibility(List<SubtaskModel> eligible) {
+        PointScale scale = scale(eligible);
+        return new Feasibility(List.copyOf(eligible),
+                FeasibilityTable.build(points(eligible, scale), difficulties(eligible)), scale);
+    }
 
-        for (Map.Entry<Integer, FeasibleDist> e : dp.entrySet()) {
-            if (e.getKey() == 0) continue;
-            if (e.getValue().isDistributionOk()) {
-                sums.add(e.getKey());
+    /** Drop all cached results of a task (e.g. when it is deleted). */
+    public static void invalidate(TaskModel task) {
+        CACHE.invalidate(task.getId());
+        TRACKERS.invalidate(task.getId());
+    }
+
+    /** Drop all cached results (e.g. when another file is loaded). */
+    public static void clearCache() {
+        CACHE.clear();
+        TRACKERS.clear();
+    }
+
+    /** Incremental achievable sums of a task; its subtask edits are applied from then on. */
+    public static Incremental incremental(TaskModel task, GenerateScope scope) {
+        TRACKERS.touch(task.getId());
+        return tracker(snapshot(task, scope));
+    }
+
+    /** Tracker for the snapshot's task and scope; one with a different unit is replaced. */
+    private static Incremental tracker(Snapshot s) {
+        Incremental t = TRACKERS.get(s.taskId(), s.scope(), () -> build(s));
+        if (t.scale().equals(s.scale())) return t;
+        Incremental fresh = build(s);
+        TRACKERS.put(s.taskId(), s.scope(), fresh);
+        return fresh;
+    }
+
+    private static Incremental build(Snapshot s) {
+        return new Incremental(s.scale(), IncrementalFeasibility.of(s.subtaskIds(), s.points(), s.difficulties()));
+    }
+
+    /** A subtask was added or its points, difficulty or eligibility changed; called by {@link XmlService}. */
+    public static void subtaskChanged(SubtaskModel st) {
+        String taskId = st.getParent().getId();
+        CACHE.invalidate(taskId);
+        TRACKERS.touch(taskId);
+        for (var e : TRACKERS.of(taskId)) {
+            Incremental t = e.getValue();
+            if (!st.isEligibleFor(e.getKey().scope())) {
+                t.sums().remove(st.getId());
+            } else if (t.scale().isMultiple(st.getPoints())) {
+                t.sums().put(st.getId(), t.scale().toUnits(st.getPoints()), st.getDifficulty());
+            } else {
+                TRACKERS.remove(e.getKey()); // finer unit needed: rebuilt on the next query
             }
         }
+    }
 
-        return new ArrayList<>(sums);
+    /** A subtask was deleted; called by {@link XmlService}. */
+    public static void subtaskRemoved(SubtaskModel st) {
+        String taskId = st.getParent().getId();
+        CACHE.invalidate(taskId);
+        TRACKERS.touch(taskId);
+        for (var e : TRACKERS.of(taskId)) e.getValue().sums().remove(st.getId());
     }
 
-    /** Pick an actual combination hitting the sum with near-1/3 distribution; returns null if impossible. */
-    public static List<SubtaskModel> pickSubtasksWithDistribution(List<SubtaskModel> eligible, int targetSum) {
-        eligible = new ArrayList<>(eligible);
-        eligible.sort(Comparator.comparingInt(st -> -st.getPoints().intValue())); // big first to reduce branching
+    private static PointScale scale(List<SubtaskModel> subtasks) {
+        List<BigDecimal> values = new ArrayList<>(subtasks.size());
+        for (SubtaskModel st : subtasks) values.add(st.getPoints());
+        return PointScale.of(values);
+    }
 
-        List<SubtaskModel> best = new ArrayList<>();
-        backtrack(eligible, 0, targetSum, new ArrayList<>(), new int[3], best);
-        return best.isEmpty() ? null : best;
+    private static int[] points(List<SubtaskModel> subtasks, PointScale scale) {
+        int[] points = new int[subtasks.size()];
+        for (int i = 0; i < points.length; i++) points[i] = scale.toUnits(subtasks.get(i).getPoints());
+        return points;
     }
 
-    private static void backtrack(List<SubtaskModel> arr, int idx, int remaining,
-                                  List<SubtaskModel> cur, int[] dist, List<SubtaskModel> best) {
-        if (remaining == 0) {
-            if (distributionOk(dist)) {
-                if (cur.size() > best.size()) {
-                    best.clear();
-                    best.addAll(cur);
-                }
+    private static List<BigDecimal> toPoints(List<Integer> units, PointScale scale) {
+        List<BigDecimal> out = new ArrayList<>(units.size());
+        for (int u : units) out.add(scale.toPoints(u));
+        return List.copyOf(out);
+    }
+
+    private static Difficulty[] difficulties(List<SubtaskModel> subtasks) {
+        Difficulty[] diffs = new Difficulty[subtasks.size()];
+        for (int i = 0; i < diffs.length; i++) diffs[i] = subtasks.get(i).getDifficulty();
+        return diffs;
+    }
+
+    /** Return all achievable sums for a task respecting eligibility and distribution (non-empty). */
+    public static List<BigDecimal> achievablePointSums(TaskModel task, GenerateScope scope) {
+        return achievablePointSums(snapshot(task, scope));
+    }
+
+    /**
+     * Achievable sums of a snapshot; thread-safe, meant for background workers.
+     * Edited tasks are answered by their incremental tracker as long as it matches the snapshot.
+     */
+    public static List<BigDecimal> achievablePointSums(Snapshot snapshot) {
+        if (TRACKERS.isTouched(snapshot.taskId())) {
+            IncrementalFeasibility inc = tracker(snapshot).sums();
+            if (inc.matches(snapshot.subtaskIds(), snapshot.points(), snapshot.difficulties())) {
+                return toPoints(inc.achievableSums(), snapshot.scale());
             }
-            return;
         }
-        if (remaining < 0 || idx >= arr.size()) return;
+        return toPoints(table(snapshot).achievableSums(), snapshot.scale());
+    }
 
-        int maxPossible = 0;
-        for (int i = idx; i < arr.size(); i++) maxPossible += arr.get(i).getPoints().intValue();
-        if (maxPossible < remaining) return;
+    /**
+     * Pick an actual combination hitting the sum with near-1/3 distribution; returns null if impossible
+     * or if nothing was found within {@link #DEFAULT_PICK_BUDGET}.
+     */
+    public static List<SubtaskModel> pickSubtasksWithDistribution(List<SubtaskModel> eligible, BigDecimal targetSum) {
+        Pick pick = pickSubtasksWithDistribution(feasibility(eligible), targetSum, DEFAULT_PICK_BUDGET);
+        return pick == null || pick.timedOut() ? null : pick.subtasks();
+    }
 
-        SubtaskModel st = arr.get(idx);
-        int dIdx = switch (st.getDifficulty()) {
-            case EASY -> 0; case MEDIUM -> 1; case HARD -> 2;
-        };
-        cur.add(st);
-        dist[dIdx]++;
-        backtrack(arr, idx + 1, remaining - st.getPoints().intValue(), cur, dist, best);
-        cur.remove(cur.size() - 1);
-        dist[dIdx]--;
+    /**
+     * Pick a combination with the largest possible subtask count from a prebuilt table.
+     * Runs in pseudo-polynomial time; once {@code budget} is spent the best combination found so far
+     * is returned, or {@link Pick#TIMED_OUT} if none was found yet. Returns null if the sum is impossible.
+     */
+    public static Pick pickSubtasksWithDistribution(Feasibility f, BigDecimal targetSum, Duration budget) {
+        if (!f.isAchievable(targetSum)) return null;
+        long deadline = System.nanoTime() + Math.max(0, budget.toNanos());
+        FeasibilityTable.Selection sel = f.table().pick(f.scale().toUnits(targetSum), deadline);
+        if (sel == null) return null;
+        if (sel.timedOut()) return Pick.TIMED_OUT;
+        List<SubtaskModel> chosen = new ArrayList<>(sel.indices().length);
+        for (int i : sel.indices()) chosen.add(f.eligible().get(i));
+        return new Pick(chosen, sel.maximal());
+    }
 
-        backtrack(arr, idx + 1, remaining, cur, dist, best);
+    /** All valid combinations of a task's eligible subtasks for {@code targetSum}, enumerated lazily. */
+    public static CombinationSpace combinations(TaskModel task, GenerateScope scope, BigDecimal targetSum) {
+        return combinations(feasibility(task, scope), targetSum);
     }
 
-    private static boolean distributionOk(int[] dist) {
-        int n = dist[0] + dist[1] + dist[2];
+    /**
+     * Combination space for a prebuilt table; unachievable sums short-circuit to an empty space.
+     * Throws IllegalArgumentException if the count tables would exceed {@link CombinationSpace#MAX_CELLS}.
+     */
+    public static CombinationSpace combinations(Feasibility f, BigDecimal targetSum) {
+        if (!f.isAchievable(targetSum)) {
+            return CombinationSpace.of(List.of(), new int[0], new Difficulty[0], 0, f.scale());
+        }
+        return CombinationSpace.of(f.eligible(), points(f.eligible(), f.scale()), difficulties(f.eligible()),
+                f.scale().toUnits(targetSum), f.scale());
+    }
+
+    /** Count table cells (doubles, 8 bytes each) {@link #combinations(Feasibility, BigDecimal)} would allocate. */
+    public static long combinationCells(Feasibility f, BigDecimal targetSum) {
+        if (!f.isAchievable(targetSum)) return 0;
+        return CombinationSpace.cells(points(f.eligible(), f.scale()), difficulties(f.eligible()), f.scale().toUnits(targetSum));
+    }
+
+    /** 1/3 rule for an (easy, medium, hard) count triple; equivalent to "non-empty and counts differ by at most 2". */
+    static boolean distributionOk(int easy, int medium, int hard) {
+        int n = easy + medium + hard;
         if (n == 0) return false;
         int target = Math.round(n / 3f);
-        return Math.abs(dist[0] - target) <= 1 &&
-               Math.abs(dist[1] - target) <= 1 &&
-               Math.abs(dist[2] - target) <= 1;
-    }
-
-    private record FeasibleDist(int easy, int med, int hard, int count) {
-        FeasibleDist add(Difficulty d) {
-            return switch (d) {
-                case EASY -> new FeasibleDist(easy + 1, med, hard, count + 1);
-                case MEDIUM -> new FeasibleDist(easy, med + 1, hard, count + 1);
-                case HARD -> new FeasibleDist(easy, med, hard + 1, count + 1);
-            };
-        }
-        boolean isDistributionOk() {
-            return distributionOk(new int[]{easy, med, hard});
-        }
+        return Math.abs(easy - target) <= 1 &&
+               Math.abs(medium - target) <= 1 &&
+               Math.abs(hard - target) <= 1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package simon.klausurcraft.services;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+
+/**
+ * Integer unit of a set of decimal point values, so the DP can stay on ints.
+ *
+ * The unit is 10^-scale (scale = most decimal places of any value) times the GCD of all values in
+ * that scale, i.e. the largest decimal that divides every value: {0.5, 1.5} -> 0.5, {2, 4, 6} -> 2.
+ * A larger unit means proportionally smaller DP tables. Values that are not a multiple of the unit
+ * cannot be represented ({@link #isMultiple}).
+ */
+public record PointScale(BigDecimal unit) {
+
+    /** Unit of one point (plain integer points). */
+    public static final PointScale ONE = new PointScale(BigDecimal.ONE);
+
+    public PointScale {
+        if (unit.signum() <= 0) throw new IllegalArgumentException("unit must be positive: " + unit);
+        unit = normalize(unit);
+    }
+
+    /** Largest unit dividing all values (zero and negative values are ignored). */
+    public static PointScale of(Collection<BigDecimal> values) {
+        int scale = 0;
+        for (BigDecimal v : values) {
+            if (v.signum() > 0) scale = Math.max(scale, v.stripTrailingZeros().scale());
+        }
+        BigInteger gcd = BigInteger.ZERO;
+        for (BigDecimal v : values) {
+            if (v.signum() <= 0) continue;
+            gcd = gcd.gcd(v.movePointRight(scale).toBigIntegerExact());
+            if (gcd.equals(BigInteger.ONE)) break;
+        }
+        if (gcd.signum() == 0) return ONE;
+        return new PointScale(new BigDecimal(gcd, scale));
+    }
+
+    public boolean isMultiple(BigDecimal points) {
+        return points.remainder(unit).signum() == 0;
+    }
+
+    /** Points in units; throws ArithmeticException if not a multiple of the unit or out of int range. */
+    public int toUnits(BigDecimal points) {
+        return points.divide(unit).intValueExact();
+    }
+
+    /** Units back to (normalized) points. */
+    public BigDecimal toPoints(long units) {
+        return normalize(unit.multiply(BigDecimal.valueOf(units)));
+    }
+
+    /** Canonical form for comparisons and display: no trailing zeros, never an exponent (10, not 1E+1). */
+    public static BigDecimal normalize(BigDecimal points) {
+        BigDecimal s = points.stripTrailingZeros();
+        return s.scale() < 0 ? s.setScale(0) : s;
+    }
+}
@@ -0,0 +1,122 @@
+package simon.klausurcraft.services;
+
+import org.xml.sax.ErrorHandler;
+import simon.klausurcraft.model.TaskModel;
+
+import javax.xml.validation.Schema;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * One XML file of the loaded pool (a pool is one file or all files of a directory): its tasks,
+ * journal and save state. Only files with changes since their last successful write are rewritten.
+ *
+ * {@link #read} is thread-safe, so the files of a directory can be read in parallel; everything else
+ * belongs to the model thread, except {@link #written}, {@link #sha256} and {@link #base} (writer thread).
+ */
+final class PoolFile {
+
+    final Path path;
+    final List<TaskModel> tasks;
+    /** SHA-256 of the file as last read or written; an autosave producing the same bytes is skipped. */
+    volatile byte[] sha256;
+    /** Tasks as last read or written, by id; the common ancestor when merging external changes. */
+    volatile Map<String, PoolWriter.Task> base;
+    EditJournal journal;   // null if it could not be opened
+    long changes;          // edits so far (model thread)
+    long snapshotted;      // value of changes in the latest snapshot (model thread)
+    volatile long written; // value of changes covered by the last successful write (writer thread)
+
+    private PoolFile(Path path, List<TaskModel> tasks, byte[] sha256, List<PoolWriter.Task> snapshot) {
+        this.path = path;
+        this.tasks = tasks;
+        this.sha256 = sha256;
+        this.base = byId(snapshot);
+    }
+
+    boolean isDirty() {
+        return changes != written;
+    }
+
+    /**
+     * Read {@code file} from its snapshot cache entry if current, else parse (and, with a schema,
+     * validate) it and refresh the cache in the background. {@code cache} may be null.
+     */
+    static PoolFile read(Path file, Schema schema, SnapshotCache cache, ErrorHandler errors) throws Exception {
+        return read(file, schema, cache, errors, LoadCounter.NONE);
+    }
+
+    /** As above, reporting bytes read and tasks parsed to {@code progress}; an interrupt cancels the parse. */
+    static PoolFile read(Path file, Schema schema, SnapshotCache cache, ErrorHandler errors, LoadCounter progress) throws Exception {
+        SnapshotCache.Key key = cache == null ? null : SnapshotCache.Key.of(file);
+        Optional<SnapshotCache.Entry> cached = key == null ? Optional.empty() : cache.read(key, schema != null);
+        if (cached.isPresent()) {
+            List<TaskModel> tasks = new ArrayList<>(cached.get().tasks());
+            progress.bytes(key.size());
+            progress.tasks(tasks.size());
+            return new PoolFile(file, tasks, cached.get().sha256(), PoolWriter.snapshot(tasks));
+        }
+
+        StaxPoolLoader.Result result;
+        MessageDigest sha = AtomicFileWriter.sha256();
+        InputStream raw = progress.wrap(new DigestInputStream(Files.newInputStream(file), sha));
+        try (InputStream in = new BufferedInputStream(raw, 64 * 1024)) {
+            // the parser may close its input at the end of the document; the rest still has to be hashed
+            InputStream parserIn = new FilterInputStream(in) {
+                @Override public void close() { }
+            };
+            result = StaxPoolLoader.load(parserIn, file.toUri().toString(), schema, errors, () -> progress.tasks(1));
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        List<TaskModel> tasks = new ArrayList<>(result.tasks());
+        List<PoolWriter.Task> snapshot = PoolWriter.snapshot(tasks);
+        PoolFile f = new PoolFile(file, tasks, sha.digest(), snapshot);
+        if (key != null) cache.storeAsync(key, f.sha256, schema != null, snapshot);
+        return f;
+    }
+
+    /** SHA-256 of the file's current content. */
+    static byte[] hash(Path file) throws IOException {
+        return AtomicFileWriter.sha256(file);
+    }
+
+    static Map<String, PoolWriter.Task> byId(List<PoolWriter.Task> tasks) {
+        Map<String, PoolWriter.Task> out = new LinkedHashMap<>();
+        for (PoolWriter.Task t : tasks) out.put(t.id(), t);
+        return out;
+    }
+
+    /** Replay and open the journal; returns the number of recovered edits. */
+    int openJournal() {
+        try {
+            EditJournal.Opened opened = EditJournal.open(path, tasks);
+            journal = opened.journal();
+            return opened.replayed();
+        } catch (IOException e) {
+            System.err.println("[XML JOURNAL] Journaling disabled for " + path.getFileName() + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("[XML JOURNAL] " + e.getMessage());
+        }
+        journal = null;
+    }
+}
@@ -0,0 +1,65 @@
+package simon.klausurcraft.services;
+
+import simon.klausurcraft.model.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copy of a task list's field values together with the model objects they belong to, so
+ * {@link #restore} can put the old state back into the same objects (the UI keeps references to them).
+ */
+final class PoolState {
+
+    private record Variant(VariantModel model, String text, String solution) {}
+
+    private record Subtask(SubtaskModel model, BigDecimal points, Difficulty difficulty, Eligibility eligibility,
+                           String group, List<Variant> variants) {}
+
+    private record Task(TaskModel model, String title, List<Subtask> subtasks) {}
+
+    private final List<Task> tasks;
+
+    private PoolState(List<Task> tasks) {
+        this.tasks = tasks;
+    }
+
+    static PoolState capture(List<TaskModel> tasks) {
+        List<Task> out = new ArrayList<>(tasks.size());
+        for (TaskModel t : tasks) {
+            List<Subtask> subs = new ArrayList<>(t.getSubtasks().size());
+            for (SubtaskModel st : t.getSubtasks()) {
+                List<Variant> vars = new ArrayList<>(st.getVariants().size());
+                for (VariantModel v : st.getVariants()) vars.add(new Variant(v, v.getText(), v.getSolution()));
+                subs.add(new Subtask(st, st.getPoints(), st.getDifficulty(), st.getEligibility(), st.getGroup(), vars));
+            }
+            out.add(new Task(t, t.getTitle(), subs));
+        }
+        return new PoolState(out);
+    }
+
+    /** Make {@code into} (the list captured from) hold the captured objects and values again. */
+    void restore(List<TaskModel> into) {
+        into.clear();
+        for (Task t : tasks) {
+            t.model().setTitle(t.title());
+            t.model().getSubtasks().clear();
+            for (Subtask st : t.subtasks()) {
+                SubtaskModel m = st.model();
+                m.setPoints(st.points());
+                m.setDifficulty(st.difficulty());
+                m.setEligibility(st.eligibility());
+                m.setGroup(st.group());
+                m.getVariants().clear();
+                for (Variant v : st.variants()) {
+                    v.model().setText(v.text());
+                    v.model().setSolution(v.solution());
+                    m.getVariants().add(v.model());
+                }
+                t.model().getSubtasks().add(m);
+            }
+            into.add(t.model());
+        }
+    }
+}
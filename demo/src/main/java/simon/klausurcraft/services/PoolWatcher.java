@@ -0,0 +1,110 @@
+package simon.klausurcraft.services;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the files of a pool for changes by other programs (editors, git) with a {@link WatchService}
+ * on their directories. Events are debounced: {@code onChange} gets the set of changed files once no
+ * further event arrived for the debounce window, on the watcher's own daemon thread.
+ *
+ * Editors and git often replace a file (write a temp file, rename it over the original), so creates,
+ * modifications and deletes of a watched name all count; a file that is missing when the window ends
+ * is skipped and reported with the event of its replacement.
+ */
+final class PoolWatcher implements AutoCloseable {
+
+    private final WatchService ws;
+    private final Set<Path> files;
+    private final Duration debounce;
+    private final Consumer<Set<Path>> onChange;
+    private final Thread thread;
+
+    PoolWatcher(Collection<Path> files, Duration debounce, Consumer<Set<Path>> onChange) throws IOException {
+        this.files = new HashSet<>();
+        for (Path f : files) this.files.add(f.toAbsolutePath().normalize());
+        this.debounce = debounce;
+        this.onChange = onChange;
+        this.ws = FileSystems.getDefault().newWatchService();
+        Set<Path> dirs = new HashSet<>();
+        for (Path f : this.files) dirs.add(f.getParent());
+        for (Path dir : dirs) {
+            dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        this.thread = new Thread(this::run, "xml-watch");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run() {
+        Set<Path> pending = new LinkedHashSet<>();
+        long deadline = 0; // end of the window; only events of watched files extend it (not the journal's)
+        try {
+            while (true) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = ws.take();
+                } else {
+                    long wait = deadline - System.nanoTime();
+                    key = wait <= 0 ? null : ws.poll(wait, TimeUnit.NANOSECONDS);
+                }
+                if (key == null) { // quiet for the debounce window
+                    Set<Path> changed = new LinkedHashSet<>();
+                    for (Path p : pending) if (Files.isRegularFile(p)) changed.add(p); // deleted: wait for its CREATE
+                    pending.clear();
+                    if (!changed.isEmpty()) notify(changed);
+                    continue;
+                }
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        pending.addAll(files);
+                        deadline = System.nanoTime() + debounce.toNanos();
+                    } else if (event.context() instanceof Path name) {
+                        Path p = dir.resolve(name).toAbsolutePath().normalize();
+                        if (files.contains(p)) {
+                            pending.add(p);
+                            deadline = System.nanoTime() + debounce.toNanos();
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void notify(Set<Path> changed) {
+        try {
+            onChange.accept(changed);
+        } catch (RuntimeException e) {
+            System.err.println("[XML WATCH] " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            ws.close();
+        } catch (IOException e) {
+            System.err.println("[XML WATCH] " + e.getMessage());
+        }
+        thread.interrupt();
+    }
+}
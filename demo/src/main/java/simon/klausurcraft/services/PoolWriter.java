@@ -0,0 +1,149 @@
+package simon.klausurcraft.services;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+import simon.klausurcraft.model.*;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.validation.Schema;
+import javax.xml.validation.ValidatorHandler;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes a pool straight from the model with an {@link XMLStreamWriter} (no DOM).
+ *
+ * {@link #snapshot} copies the models into immutable records on the model thread, so the write
+ * itself can run on the autosave thread. With a schema, every element is also fed to a
+ * {@link ValidatorHandler}; an invalid pool fails the write before the target file is replaced.
+ */
+final class PoolWriter {
+
+    private PoolWriter() {}
+
+    record Variant(String id, String text, String solution) {}
+
+    record Subtask(String id, BigDecimal points, Difficulty difficulty, Eligibility eligibility,
+                   String group, List<Variant> variants) {}
+
+    record Task(String id, String title, List<Subtask> subtasks) {}
+
+    /**
+     * Immutable copy of the pool (model thread). Points are normalized here, so two snapshots of the
+     * same content are equal records.
+     */
+    static List<Task> snapshot(List<TaskModel> tasks) {
+        List<Task> out = new ArrayList<>(tasks.size());
+        for (TaskModel t : tasks) {
+            List<Subtask> subs = new ArrayList<>(t.getSubtasks().size());
+            for (SubtaskModel st : t.getSubtasks()) {
+                List<Variant> vars = new ArrayList<>(st.getVariants().size());
+                for (VariantModel v : st.getVariants()) vars.add(new Variant(v.getId(), v.getText(), v.getSolution()));
+                subs.add(new Subtask(st.getId(), PointScale.normalize(st.getPoints()), st.getDifficulty(), st.getEligibility(),
+                        st.getGroup(), List.copyOf(vars)));
+            }
+            out.add(new Task(t.getId(), t.getTitle(), List.copyOf(subs)));
+        }
+        return List.copyOf(out);
+    }
+
+    /** Write the pool as UTF-8, validating against {@code schema} if not null; the stream is not closed. */
+    static void write(OutputStream out, List<Task> tasks, Schema schema) throws XMLStreamException, SAXException {
+        XMLStreamWriter w = XmlFactories.writer(out);
+        Emitter e = new Emitter(w, schema == null ? null : schema.newValidatorHandler());
+        e.startDocument();
+        e.start(0, "tasks");
+        for (Task t : tasks) {
+            e.start(1, "task", "id", t.id(), "title", t.title());
+            for (Subtask st : t.subtasks()) {
+                e.start(2, "subtask", "id", st.id(), "points", st.points().toPlainString(),
+                        "difficulty", st.difficulty().toString(), "eligibility", st.eligibility().toString());
+                if (st.group().isEmpty()) e.start(3, "variants");
+                else e.start(3, "variants", "group", st.group());
+                for (Variant v : st.variants()) {
+                    e.start(4, "variant", "id", v.id());
+                    e.value(5, "text", v.text());
+                    e.value(5, "solution", v.solution());
+                    e.end(4, "variant");
+                }
+                e.end(3, "variants");
+                e.end(2, "subtask");
+            }
+            e.end(1, "task");
+        }
+        e.end(0, "tasks");
+        e.endDocument();
+        w.flush();
+        w.close();
+    }
+
+    /** Two-space indented output plus the optional validator. */
+    private static final class Emitter {
+        private static final ErrorHandler STRICT = new ErrorHandler() {
+            @Override public void warning(SAXParseException e) { }
+            @Override public void error(SAXParseException e) throws SAXException { throw e; }
+            @Override public void fatalError(SAXParseException e) throws SAXException { throw e; }
+        };
+
+        private final XMLStreamWriter w;
+        private final ValidatorHandler v;
+        private final AttributesImpl attrs = new AttributesImpl();
+
+        Emitter(XMLStreamWriter w, ValidatorHandler v) {
+            this.w = w;
+            this.v = v;
+            if (v != null) v.setErrorHandler(STRICT);
+        }
+
+        void startDocument() throws XMLStreamException, SAXException {
+            w.writeStartDocument("UTF-8", "1.0");
+            if (v != null) v.startDocument();
+        }
+
+        void endDocument() throws XMLStreamException, SAXException {
+            w.writeCharacters("\n");
+            w.writeEndDocument();
+            if (v != null) v.endDocument();
+        }
+
+        void start(int depth, String name, String... nameValues) throws XMLStreamException, SAXException {
+            indent(depth);
+            w.writeStartElement(name);
+            for (int i = 0; i < nameValues.length; i += 2) w.writeAttribute(nameValues[i], nameValues[i + 1]);
+            if (v != null) {
+                attrs.clear();
+                for (int i = 0; i < nameValues.length; i += 2) {
+                    attrs.addAttribute("", nameValues[i], nameValues[i], "CDATA", nameValues[i + 1]);
+                }
+                v.startElement("", name, name, attrs);
+            }
+        }
+
+        void end(int depth, String name) throws XMLStreamException, SAXException {
+            indent(depth);
+            w.writeEndElement();
+            if (v != null) v.endElement("", name, name);
+        }
+
+        /** Text-only element on one line (its content is significant, so no indentation inside). */
+        void value(int depth, String name, String text) throws XMLStreamException, SAXException {
+            start(depth, name);
+            w.writeCharacters(text);
+            w.writeEndElement();
+            if (v != null) {
+                v.characters(text.toCharArray(), 0, text.length());
+                v.endElement("", name, name);
+            }
+        }
+
+        private void indent(int depth) throws XMLStreamException {
+            w.writeCharacters("\n");
+            w.writeCharacters("  ".repeat(depth));
+        }
+    }
+}
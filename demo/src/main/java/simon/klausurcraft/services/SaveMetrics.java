@@ -0,0 +1,51 @@
+package simon.klausurcraft.services;
+
+import java.time.Duration;
+
+/**
+ * Latency and size of the saves of one {@link XmlService}. Thread-safe (synchronized).
+ */
+public final class SaveMetrics {
+
+    /** Point-in-time view; durations are zero before the first save. */
+    public record Stats(long saves, long unchanged, long failures, Duration last, Duration mean, Duration max,
+                        long lastBytes, long totalBytes) {
+        @Override public String toString() {
+            return String.format("%d saves (%d unchanged, %d failed), last %d ms / %,d bytes, mean %d ms, max %d ms",
+                    saves, unchanged, failures, last.toMillis(), lastBytes, mean.toMillis(), max.toMillis());
+        }
+    }
+
+    private long saves;
+    private long unchanged;
+    private long failures;
+    private long lastNanos;
+    private long totalNanos;
+    private long maxNanos;
+    private long lastBytes;
+    private long totalBytes;
+
+    synchronized void recordSave(long nanos, long bytes) {
+        saves++;
+        lastNanos = nanos;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+        lastBytes = bytes;
+        totalBytes += bytes;
+    }
+
+    /** A save whose output equalled the file, so nothing was replaced (counted as a save, too). */
+    synchronized void recordUnchanged() {
+        unchanged++;
+    }
+
+    synchronized void recordFailure() {
+        failures++;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(saves, unchanged, failures, Duration.ofNanos(lastNanos),
+                Duration.ofNanos(saves == 0 ? 0 : totalNanos / saves), Duration.ofNanos(maxNanos),
+                lastBytes, totalBytes);
+    }
+}
@@ -0,0 +1,242 @@
+package simon.klausurcraft.services;
+
+import simon.klausurcraft.model.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary copy of parsed pools in the user cache directory, so reopening a large pool skips parsing
+ * and schema validation.
+ *
+ * One file per pool path ({@code <hash of the path>.bin}): a header with the path, size, mtime and
+ * SHA-256 of the XML it was made from, then the models as length-prefixed fields and a CRC32C. An entry
+ * is used only if path, size and mtime still match the file (and it was validated, if the load asks
+ * for validation); anything else is a miss and the caller parses the XML. Entries are written on a
+ * background thread; of several pending ones for the same file only the newest is written.
+ */
+final class SnapshotCache {
+
+    /** Bump the version when the layout (or the order of Difficulty/Eligibility constants) changes. */
+    private static final byte[] MAGIC = { 'K', 'C', 'S', '1' };
+
+    /** Identity of the XML file an entry was made from. */
+    record Key(Path file, long size, long mtimeNanos) {
+        static Key of(Path file) throws IOException {
+            Path abs = file.toAbsolutePath().normalize();
+            return new Key(abs, Files.size(abs), Files.getLastModifiedTime(abs).to(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /** A hit: the models and the SHA-256 of the XML they came from. */
+    record Entry(List<TaskModel> tasks, byte[] sha256) {}
+
+    private record Pending(Key key, byte[] sha256, boolean validated, List<PoolWriter.Task> tasks) {}
+
+    private final Path dir;
+    private final Map<Path, Pending> pending = new ConcurrentHashMap<>();
+    private final ExecutorService exec = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "xml-snapshot-cache");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    SnapshotCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /** Platform cache directory for the application (XDG on Linux, Library/Caches on macOS, LOCALAPPDATA on Windows). */
+    static Path defaultDirectory() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        Path home = Path.of(System.getProperty("user.home"));
+        if (os.contains("win")) {
+            String local = System.getenv("LOCALAPPDATA");
+            return (local != null ? Path.of(local) : home.resolve("AppData").resolve("Local"))
+                    .resolve("klausurcraft").resolve("cache");
+        }
+        if (os.contains("mac")) return home.resolve("Library").resolve("Caches").resolve("klausurcraft");
+        String xdg = System.getenv("XDG_CACHE_HOME");
+        return (xdg != null && !xdg.isBlank() ? Path.of(xdg) : home.resolve(".cache")).resolve("klausurcraft");
+    }
+
+    /** The cached models of {@code key}, if the entry is intact and current. */
+    Optional<Entry> read(Key key, boolean needValidated) {
+        Path entry = entryFor(key.file());
+        try (InputStream raw = Files.newInputStream(entry)) {
+            CRC32C crc = new CRC32C();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(raw, 64 * 1024), crc));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) return Optional.empty();
+            if (!str(in).equals(key.file().toString()) || in.readLong() != key.size()
+                    || in.readLong() != key.mtimeNanos()) return Optional.empty();
+            byte[] sha = new byte[length(in)];
+            in.readFully(sha);
+            boolean validated = in.readBoolean();
+            if (needValidated && !validated) return Optional.empty();
+
+            List<TaskModel> tasks = readTasks(in);
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected) {
+                System.err.println("[XML CACHE] Corrupt entry " + entry.getFileName() + " ignored");
+                return Optional.empty();
+            }
+            return Optional.of(new Entry(tasks, sha));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[XML CACHE] Unreadable entry " + entry.getFileName() + " ignored: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** Write an entry for {@code key} in the background; supersedes an entry of the same file still waiting. */
+    void storeAsync(Key key, byte[] sha256, boolean validated, List<PoolWriter.Task> tasks) {
+        Path file = key.file();
+        if (pending.put(file, new Pending(key, sha256, validated, tasks)) != null) return; // a task is queued already
+        exec.execute(() -> {
+            Pending p = pending.remove(file);
+            if (p == null) return;
+            try {
+                store(p);
+            } catch (IOException e) {
+                System.err.println("[XML CACHE] " + e.getMessage());
+            }
+        });
+    }
+
+    /** Finish a pending write (application exit); gives up after a short wait. */
+    void close() {
+        exec.shutdown();
+        try {
+            exec.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void store(Pending p) throws IOException {
+        Files.createDirectories(dir);
+        Path entry = entryFor(p.key().file());
+        Path tmp = Files.createTempFile(dir, entry.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream raw = Files.newOutputStream(tmp)) {
+                CRC32C crc = new CRC32C();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(raw, 64 * 1024), crc));
+                out.write(MAGIC);
+                str(out, p.key().file().toString());
+                out.writeLong(p.key().size());
+                out.writeLong(p.key().mtimeNanos());
+                out.writeInt(p.sha256().length);
+                out.write(p.sha256());
+                out.writeBoolean(p.validated());
+                writeTasks(out, p.tasks());
+                out.flush();
+                out.writeInt((int) crc.getValue());
+                out.flush();
+            }
+            try {
+                Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path entryFor(Path file) {
+        byte[] digest = AtomicFileWriter.sha256().digest(file.toString().getBytes(StandardCharsets.UTF_8));
+        return dir.resolve(HexFormat.of().formatHex(digest, 0, 16) + ".bin");
+    }
+
+    private static void writeTasks(DataOutputStream out, List<PoolWriter.Task> tasks) throws IOException {
+        out.writeInt(tasks.size());
+        for (PoolWriter.Task t : tasks) {
+            str(out, t.id());
+            str(out, t.title());
+            out.writeInt(t.subtasks().size());
+            for (PoolWriter.Subtask st : t.subtasks()) {
+                str(out, st.id());
+                str(out, st.points().toPlainString());
+                out.writeByte(st.difficulty().ordinal());
+                out.writeByte(st.eligibility().ordinal());
+                str(out, st.group());
+                out.writeInt(st.variants().size());
+                for (PoolWriter.Variant v : st.variants()) {
+                    str(out, v.id());
+                    str(out, v.text());
+                    str(out, v.solution());
+                }
+            }
+        }
+    }
+
+    private static List<TaskModel> readTasks(DataInputStream in) throws IOException {
+        Difficulty[] difficulties = Difficulty.values();
+        Eligibility[] eligibilities = Eligibility.values();
+        int taskCount = in.readInt();
+        List<TaskModel> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            TaskModel t = new TaskModel(str(in), str(in));
+            int subtaskCount = in.readInt();
+            for (int j = 0; j < subtaskCount; j++) {
+                SubtaskModel st = new SubtaskModel(t, str(in), new BigDecimal(str(in)),
+                        difficulties[in.readByte()], eligibilities[in.readByte()]);
+                st.setGroup(str(in));
+                int variantCount = in.readInt();
+                for (int k = 0; k < variantCount; k++) {
+                    st.getVariants().add(new VariantModel(str(in), str(in), str(in)));
+                }
+                t.getSubtasks().add(st);
+            }
+            tasks.add(t);
+        }
+        return tasks;
+    }
+
+    private static int length(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > 256 * 1024 * 1024) throw new IOException("bad length " + n);
+        return n;
+    }
+
+    private static void str(DataOutputStream out, String s) throws IOException {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String str(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[length(in)];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
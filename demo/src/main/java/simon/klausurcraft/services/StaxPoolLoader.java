@@ -0,0 +1,206 @@
+package simon.klausurcraft.services;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+import simon.klausurcraft.model.*;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.validation.Schema;
+import javax.xml.validation.ValidatorHandler;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One forward pass over a pool with an {@link XMLStreamReader}: tasks, subtasks and variants are
+ * built as their elements stream by, without subtree scans. With a schema, every event is also fed
+ * to a {@link ValidatorHandler}, so validation (including the id keys) runs in the same pass.
+ * Memory is proportional to the model: no DOM is built, and whitespace between elements and
+ * comments are dropped (the pool is rewritten from the model by {@link PoolWriter}).
+ */
+final class StaxPoolLoader {
+
+    private StaxPoolLoader() {}
+
+    record Result(List<TaskModel> tasks) {}
+
+    /** Parse {@code in}; {@code schema} may be null to skip validation. Errors are SAXParseExceptions with line/column. */
+    static Result load(InputStream in, String systemId, Schema schema, ErrorHandler errors) throws Exception {
+        return load(in, systemId, schema, errors, null);
+    }
+
+    /** As above; {@code taskParsed} (may be null) runs after each complete task. */
+    static Result load(InputStream in, String systemId, Schema schema, ErrorHandler errors, Runnable taskParsed) throws Exception {
+        XMLStreamReader r = XmlFactories.reader(in, systemId);
+        try {
+            Validation v = schema == null ? null : new Validation(schema, r, systemId, errors);
+            return new Pass(r, v, taskParsed).run();
+        } catch (XMLStreamException e) {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Loading cancelled");
+            Location l = e.getLocation();
+            SAXParseException spe = new SAXParseException(e.getMessage(), null, systemId,
+                    l == null ? -1 : l.getLineNumber(), l == null ? -1 : l.getColumnNumber(), e);
+            errors.fatalError(spe);
+            throw spe;
+        } finally {
+            r.close();
+        }
+    }
+
+    private static final class Pass {
+        private final XMLStreamReader r;
+        private final Validation v;
+        private final Runnable taskParsed;
+        private final List<TaskModel> tasks = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+
+        private int depth;               // of the current element, root = 1
+        private TaskModel task;          // open <task> at depth 2
+        private SubtaskModel subtask;    // open <subtask> at depth 3
+        private VariantModel variant;    // open <variant>
+        private int variantDepth;
+        private String value;            // "text"/"solution" being read, or null
+
+        Pass(XMLStreamReader r, Validation v, Runnable taskParsed) {
+            this.r = r;
+            this.v = v;
+            this.taskParsed = taskParsed;
+        }
+
+        Result run() throws XMLStreamException, SAXException {
+            if (v != null) v.startDocument();
+            while (r.hasNext()) {
+                int event = r.next();
+                if (v != null) v.event(event);
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT -> start();
+                    case XMLStreamConstants.END_ELEMENT -> end();
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA,
+                         XMLStreamConstants.SPACE, XMLStreamConstants.ENTITY_REFERENCE -> {
+                        if (value != null) text.append(r.getText());
+                    }
+                    default -> { /* whitespace between elements, comments, PIs: not part of the model */ }
+                }
+            }
+            if (v != null) v.endDocument();
+            return new Result(tasks);
+        }
+
+        private void start() throws XMLStreamException {
+            depth++;
+            String name = r.getLocalName();
+            try {
+                if (depth == 2 && name.equals("task")) {
+                    task = new TaskModel(attr("id"), attr("title"));
+                } else if (depth == 3 && task != null && name.equals("subtask")) {
+                    subtask = new SubtaskModel(task, attr("id"), new BigDecimal(attr("points")),
+                            Difficulty.from(attr("difficulty")), Eligibility.from(attr("eligibility")));
+                } else if (depth == 4 && subtask != null && name.equals("variants")) {
+                    subtask.setGroup(attr("group"));
+                } else if (subtask != null && variant == null && name.equals("variant")) {
+                    variant = new VariantModel(attr("id"), "", "");
+                    variantDepth = depth;
+                } else if (variant != null && depth == variantDepth + 1
+                        && (name.equals("text") || name.equals("solution"))) {
+                    value = name;
+                    text.setLength(0);
+                }
+            } catch (IllegalArgumentException ex) { // bad points/difficulty/eligibility without validation
+                throw new XMLStreamException(ex.getMessage(), r.getLocation());
+            }
+        }
+
+        private void end() {
+            String name = r.getLocalName();
+            if (value != null && depth == variantDepth + 1) {
+                if (value.equals("text")) variant.setText(text.toString());
+                else variant.setSolution(text.toString());
+                value = null;
+            } else if (variant != null && depth == variantDepth) {
+                subtask.getVariants().add(variant);
+                variant = null;
+            } else if (subtask != null && depth == 3 && name.equals("subtask")) {
+                task.getSubtasks().add(subtask);
+                subtask = null;
+            } else if (task != null && depth == 2 && name.equals("task")) {
+                tasks.add(task);
+                task = null;
+                if (taskParsed != null) taskParsed.run();
+            }
+            depth--;
+        }
+
+        private String attr(String name) {
+            String value = r.getAttributeValue(null, name);
+            return value == null ? "" : value;
+        }
+    }
+
+    /** Bridges the reader's events to a SAX {@link ValidatorHandler}. */
+    private static final class Validation implements Locator {
+        private final ValidatorHandler handler;
+        private final XMLStreamReader r;
+        private final String systemId;
+        private final AttributesImpl attrs = new AttributesImpl();
+
+        Validation(Schema schema, XMLStreamReader r, String systemId, ErrorHandler errors) {
+            this.handler = schema.newValidatorHandler();
+            this.handler.setErrorHandler(errors);
+            this.r = r;
+            this.systemId = systemId;
+        }
+
+        void startDocument() throws SAXException {
+            handler.setDocumentLocator(this);
+            handler.startDocument();
+        }
+
+        void endDocument() throws SAXException {
+            handler.endDocument();
+        }
+
+        void event(int event) throws SAXException {
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    for (int i = 0; i < r.getNamespaceCount(); i++) {
+                        handler.startPrefixMapping(nz(r.getNamespacePrefix(i)), nz(r.getNamespaceURI(i)));
+                    }
+                    attrs.clear();
+                    for (int i = 0; i < r.getAttributeCount(); i++) {
+                        attrs.addAttribute(nz(r.getAttributeNamespace(i)), r.getAttributeLocalName(i),
+                                qName(r.getAttributePrefix(i), r.getAttributeLocalName(i)),
+                                r.getAttributeType(i), r.getAttributeValue(i));
+                    }
+                    handler.startElement(nz(r.getNamespaceURI()), r.getLocalName(),
+                            qName(r.getPrefix(), r.getLocalName()), attrs);
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    handler.endElement(nz(r.getNamespaceURI()), r.getLocalName(), qName(r.getPrefix(), r.getLocalName()));
+                    for (int i = 0; i < r.getNamespaceCount(); i++) handler.endPrefixMapping(nz(r.getNamespacePrefix(i)));
+                }
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+                        handler.characters(r.getTextCharacters(), r.getTextStart(), r.getTextLength());
+                default -> { }
+            }
+        }
+
+        private static String nz(String s) { return s == null ? "" : s; }
+
+        private static String qName(String prefix, String local) {
+            return prefix == null || prefix.isEmpty() ? local : prefix + ":" + local;
+        }
+
+        @Override public String getPublicId() { return null; }
+        @Override public String getSystemId() { return systemId; }
+        @Override public int getLineNumber() { return r.getLocation().getLineNumber(); }
+        @Override public int getColumnNumber() { return r.getLocation().getColumnNumber(); }
+    }
+}
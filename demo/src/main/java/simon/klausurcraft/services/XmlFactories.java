@@ -0,0 +1,63 @@
+package simon.klausurcraft.services;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared JAXP objects, so loads and autosaves stop paying for schema compilation and factory lookup.
+ *
+ * Compiled {@link Schema}s are immutable and thread-safe and are cached per XSD. Stream readers
+ * and writers come from factories that are not guaranteed thread-safe, so each thread gets its own.
+ */
+final class XmlFactories {
+
+    private XmlFactories() {}
+
+    private static final Map<URI, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<XMLOutputFactory> OUTPUT = ThreadLocal.withInitial(XMLOutputFactory::newInstance);
+
+    private static final ThreadLocal<XMLInputFactory> INPUT = ThreadLocal.withInitial(() -> {
+        XMLInputFactory f = XMLInputFactory.newInstance();
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        f.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return f;
+    });
+
+    /** Secure (no DTDs, no external entities) stream reader of the calling thread's factory. */
+    static XMLStreamReader reader(InputStream in, String systemId) throws XMLStreamException {
+        return INPUT.get().createXMLStreamReader(systemId, in);
+    }
+
+    /** UTF-8 stream writer of the calling thread's factory. */
+    static XMLStreamWriter writer(OutputStream out) throws XMLStreamException {
+        return OUTPUT.get().createXMLStreamWriter(out, "UTF-8");
+    }
+
+    /** Compiled schema of {@code xsd}; compiled on first use only. */
+    static Schema schema(Path xsd) throws SAXException {
+        URI key = xsd.toAbsolutePath().normalize().toUri();
+        Schema schema = SCHEMAS.get(key);
+        if (schema != null) return schema;
+        SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        schema = sf.newSchema(xsd.toFile());
+        // a concurrent first load may have compiled it too; keep one
+        Schema prev = SCHEMAS.putIfAbsent(key, schema);
+        return prev != null ? prev : schema;
+    }
+}
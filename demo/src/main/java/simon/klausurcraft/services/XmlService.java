@@ -1,338 +1,720 @@
 package simon.klausurcraft.services;
 
-import org.w3c.dom.*;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import simon.klausurcraft.model.*;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-
-import static javax.xml.transform.OutputKeys.ENCODING;
-import static javax.xml.transform.OutputKeys.INDENT;
-
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Loads the task pool into models and writes every change back to the file. The models are the
+ * only in-memory copy of the pool; the file is regenerated from them by {@link PoolWriter}.
+ * A pool is a single file or all {@code *.xml} files of a directory (read in parallel and merged
+ * into one task list); each task remembers its file, and only changed files are rewritten.
+ * A load is {@link #read} (any thread, cancellable, with progress) followed by {@link #open} (model thread).
+ *
+ * Every edit is first appended to the {@link EditJournal} next to the file, which costs the same
+ * for any pool size and survives a crash (leftover records are replayed by {@link #load}). The file
+ * itself is rewritten by an {@link AutosaveScheduler}: edits mark the pool dirty, and an immutable
+ * snapshot taken on the model thread is serialized on a background writer once the idle window passed;
+ * afterwards the journal records covered by that snapshot are dropped. Several edits can be grouped
+ * into a {@link Batch}: one journal force and one autosave at commit, or a rollback.
+ *
+ * The loaded files are watched for changes by other programs (see {@link PoolWatcher}). A changed
+ * file is parsed in the background and merged per task: tasks only changed in the file replace
+ * their models, tasks also changed locally since the last read or write are reported as conflicts.
+ * A save that finds the file changed since is skipped; the file is merged the same way and saved after.
+ */
 public class XmlService {
 
-    private Path currentFile;
-    private Document doc;
+    /**
+     * Idle window after the last change before the pool file is rewritten. Edits are durable in the
+     * journal before that, so the window only bounds how long the journal grows.
+     */
+    public static final Duration DEFAULT_AUTOSAVE_IDLE = Duration.ofSeconds(3);
+
+    /** Previous versions kept as {@code <name>.<n>.bak} next to the pool. */
+    public static final int DEFAULT_BACKUPS = 1;
+
+    /** Quiet time after the last file system event before an externally changed file is reloaded. */
+    public static final Duration EXTERNAL_CHANGE_DEBOUNCE = Duration.ofMillis(500);
+
+    private volatile List<PoolFile> files = List.of();
+    private final Map<TaskModel, PoolFile> owners = new IdentityHashMap<>();
+    private volatile Schema schema;
+    private final IdAllocator ids = new IdAllocator();
+    private final AutosaveScheduler<Snapshot> autosave;
+    private final SaveMetrics metrics = new SaveMetrics();
+    private volatile int backups = DEFAULT_BACKUPS;
+    private volatile SnapshotCache cache; // null = disabled
+    private final Executor modelThread;
+    private PoolWatcher watcher;
+    private volatile ExternalChangeListener externalListener;
+    private Batch batch; // open batch (model thread), or null
 
     public record LoadResult(List<TaskModel> tasks) {}
 
-    public LoadResult load(Path xmlFile, Path xsdFile) throws Exception {
-        this.currentFile = xmlFile;
+    /** Progress of {@link #read}/{@link #readDirectory}; called from the loading threads. */
+    @FunctionalInterface
+    public interface LoadProgress {
+        LoadProgress NONE = (bytesRead, totalBytes, tasksParsed) -> {};
 
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        dbf.setNamespaceAware(true);
-        dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        void update(long bytesRead, long totalBytes, int tasksParsed);
+    }
 
-        Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
-                .newSchema(xsdFile.toFile());
-        dbf.setSchema(schema);
+    /** Files parsed by {@link #read} or {@link #readDirectory}; they become the loaded pool with {@link #open}. */
+    public static final class ParsedPool {
+        private final List<PoolFile> files;
+        private final Schema schema;
 
-        DocumentBuilder db = dbf.newDocumentBuilder();
-        db.setErrorHandler(new ErrorHandler() {
-            private String where(SAXParseException e) {
-                return "(line " + e.getLineNumber() + ", col " + e.getColumnNumber() + ")";
-            }
-            @Override public void warning(SAXParseException e) {
-                System.err.println("[XML WARNING] " + where(e) + " " + e.getMessage());
-            }
-            @Override public void error(SAXParseException e) throws SAXException {
-                System.err.println("[XML ERROR] " + where(e) + " " + e.getMessage());
-                throw e;
+        private ParsedPool(List<PoolFile> files, Schema schema) {
+            this.files = files;
+            this.schema = schema;
+        }
+
+        public int taskCount() {
+            return files.stream().mapToInt(f -> f.tasks.size()).sum();
+        }
+    }
+
+    /** One task changed in {@code file}: {@code before} is null if it was added, {@code after} if it was removed. */
+    public record Replacement(Path file, TaskModel before, TaskModel after) {}
+
+    /**
+     * Merge of an externally changed file: {@code applied} replacements are already in the models,
+     * {@code conflicts} (task also edited locally) wait for {@link #acceptExternal} or {@link #keepLocal}.
+     */
+    public record ExternalChange(Path file, List<Replacement> applied, List<Replacement> conflicts) {}
+
+    /** Called on the model thread. */
+    public interface ExternalChangeListener {
+        void changed(ExternalChange change);
+        void failed(Path file, Exception error);
+    }
+
+    /** Changed files only; {@code journalMark}: end of the journal when taken (see {@link EditJournal#mark()}). */
+    private record Snapshot(List<FileSnapshot> files, Schema schema) {}
+
+    private record FileSnapshot(PoolFile file, long changes, List<PoolWriter.Task> tasks,
+                                EditJournal journal, long journalMark) {}
+
+    /**
+     * A group of edits made through this service's mutators between {@link XmlService#begin()} and
+     * {@link #commit()}. Until then their journal records are held back and no file is saved (not even
+     * earlier pending changes); closing without commit restores the models of the pool to their state at {@code begin()}.
+     */
+    public final class Batch implements AutoCloseable {
+        private final Map<PoolFile, PoolState> before = new IdentityHashMap<>();
+        private final Map<PoolFile, List<Consumer<EditJournal>>> edits = new IdentityHashMap<>();
+        private boolean done;
+
+        private Batch() {
+            for (PoolFile f : files) before.put(f, PoolState.capture(f.tasks));
+        }
+
+        private void add(PoolFile f, Consumer<EditJournal> edit) {
+            edits.computeIfAbsent(f, k -> new ArrayList<>()).add(edit);
+        }
+
+        /** Journal all edits (one force per file) and schedule one save. */
+        public void commit() {
+            if (done) throw new IllegalStateException("Batch already finished");
+            done = true;
+            batch = null;
+            for (Map.Entry<PoolFile, List<Consumer<EditJournal>>> e : edits.entrySet()) {
+                PoolFile f = e.getKey();
+                if (f.journal != null) f.journal.appendAll(e.getValue());
+                f.changes++;
             }
-            @Override public void fatalError(SAXParseException e) throws SAXException {
-                System.err.println("[XML FATAL] " + where(e) + " " + e.getMessage());
-                throw e;
+            rescheduleIfDirty();
+        }
+
+        /** Roll back unless committed. */
+        @Override
+        public void close() {
+            if (done) return;
+            done = true;
+            batch = null;
+            owners.clear();
+            for (PoolFile f : files) {
+                PoolState state = before.get(f);
+                if (state != null) state.restore(f.tasks);
+                for (TaskModel t : f.tasks) owners.put(t, f);
             }
-        });
+            ids.clear();
+            PointCombination.clearCache();
+            rescheduleIfDirty();
+        }
+    }
 
-        doc = db.parse(Files.newInputStream(xmlFile));
-        doc.getDocumentElement().normalize();
-
-        List<TaskModel> tasks = parseTasks(doc);
-        return new LoadResult(tasks);
-    }
-
-    private List<TaskModel> parseTasks(Document d) {
-        List<TaskModel> list = new ArrayList<>();
-        NodeList nTasks = d.getElementsByTagName("task");
-        for (int i = 0; i < nTasks.getLength(); i++) {
-            Element eTask = (Element) nTasks.item(i);
-            String id = eTask.getAttribute("id");
-            String title = eTask.getAttribute("title");
-            TaskModel t = new TaskModel(eTask, id, title);
-
-            NodeList nSubs = eTask.getElementsByTagName("subtask");
-            for (int j = 0; j < nSubs.getLength(); j++) {
-                Element eSub = (Element) nSubs.item(j);
-                if (!eSub.getParentNode().isSameNode(eTask)) continue;
-
-                String sid = eSub.getAttribute("id");
-                BigDecimal pts = new BigDecimal(eSub.getAttribute("points"));
-                Difficulty diff = Difficulty.from(eSub.getAttribute("difficulty"));
-                Eligibility elig = Eligibility.from(eSub.getAttribute("eligibility"));
-                SubtaskModel st = new SubtaskModel(eSub, t, sid, pts, diff, elig);
-
-                NodeList nVar = eSub.getElementsByTagName("variant");
-                for (int k = 0; k < nVar.getLength(); k++) {
-                    Element eVar = (Element) nVar.item(k);
-                    Element eText = (Element) eVar.getElementsByTagName("text").item(0);
-                    Element eSol = (Element) eVar.getElementsByTagName("solution").item(0);
-                    String vid = eVar.getAttribute("id");
-                    String text = eText != null ? getText(eText) : "";
-                    String sol = eSol != null ? getText(eSol) : "";
-                    VariantModel vm = new VariantModel(eVar, vid, text, sol);
-                    st.getVariants().add(vm);
-                }
+    /** {@code modelThread} runs the snapshot on the thread that mutates the models (e.g. {@code Platform::runLater}). */
+    public XmlService(Executor modelThread, Duration autosaveIdle) {
+        this.modelThread = modelThread;
+        this.autosave = new AutosaveScheduler<>(autosaveIdle, modelThread, this::snapshot, this::write);
+    }
+
+    public SaveMetrics getSaveMetrics() {
+        return metrics;
+    }
+
+    /** Number of rotating backups (0 = none). */
+    public void setBackupCount(int backups) {
+        this.backups = Math.max(0, backups);
+    }
+
+    /** Cache directory for binary snapshots of parsed pools (null disables the cache, the default). */
+    public void setSnapshotCacheDirectory(Path dir) {
+        SnapshotCache old = cache;
+        cache = dir == null ? null : new SnapshotCache(dir);
+        if (old != null) old.close();
+    }
+
+    /** Per-user cache directory of the platform, for {@link #setSnapshotCacheDirectory}. */
+    public static Path defaultSnapshotCacheDirectory() {
+        return SnapshotCache.defaultDirectory();
+    }
+
+    /**
+     * Start a {@link Batch} (model thread), for use with try-with-resources; batches do not nest.
+     * It copies the field values of the whole pool, so it pays off from a handful of edits on.
+     */
+    public Batch begin() {
+        if (batch != null) throw new IllegalStateException("A batch is already open");
+        batch = new Batch();
+        return batch;
+    }
+
+    /** Run {@code edits} in a {@link Batch}: committed if they return, rolled back if they throw. */
+    public void batch(Consumer<XmlService> edits) {
+        try (Batch b = begin()) {
+            edits.accept(this);
+            b.commit();
+        }
+    }
+
+    /** Receives merges of files changed by other programs; without a listener they are ignored. */
+    public void setExternalChangeListener(ExternalChangeListener listener) {
+        this.externalListener = listener;
+    }
+
+    /** Save state changes (pending/saving/saved/failed); called from any thread. */
+    public void setSaveStateListener(Consumer<AutosaveScheduler.State> listener) {
+        autosave.setListener(listener);
+    }
+
+    /** Write pending changes now; false if the write failed. While a batch is open, nothing is written until it closes. */
+    public boolean flush() {
+        return autosave.flush();
+    }
+
+    public boolean hasUnsavedChanges() {
+        return autosave.isDirty();
+    }
+
+    /** Flush and stop the autosave writer (application exit). */
+    public void close() {
+        stopWatching();
+        autosave.close();
+        for (PoolFile f : files) f.closeJournal();
+        SnapshotCache c = cache;
+        if (c != null) c.close();
+    }
+
+    /** The file a task of the loaded pool is stored in. */
+    public Optional<Path> sourceOf(TaskModel task) {
+        PoolFile f = owners.get(task);
+        return f == null ? Optional.empty() : Optional.of(f.path);
+    }
+
+    /** Files of the loaded pool, in task order. */
+    public List<Path> getFiles() {
+        return files.stream().map(f -> f.path).toList();
+    }
+
+    /** Tasks of the loaded pool in file order (a copy). */
+    public List<TaskModel> getTasks() {
+        List<TaskModel> all = new ArrayList<>();
+        for (PoolFile f : files) all.addAll(f.tasks);
+        return all;
+    }
+
+    /**
+     * Load and (if {@code xsdFile} is not null) validate a pool in one streaming pass. With a snapshot
+     * cache, an unchanged file (same size and mtime) is read from its binary snapshot instead.
+     */
+    public LoadResult load(Path xmlFile, Path xsdFile) throws Exception {
+        return open(read(xmlFile, xsdFile, LoadProgress.NONE));
+    }
+
+    /**
+     * Load all {@code *.xml} files of {@code dir} (not recursive, by file name) as one pool. The files
+     * are parsed and validated in parallel; new tasks go to the last file.
+     */
+    public LoadResult loadDirectory(Path dir, Path xsdFile) throws Exception {
+        return open(readDirectory(dir, xsdFile, LoadProgress.NONE));
+    }
+
+    /**
+     * First half of {@link #load}, for a background thread: parse and validate without touching the
+     * loaded pool. Interrupting the thread cancels the read with an {@link java.io.InterruptedIOException}.
+     */
+    public ParsedPool read(Path xmlFile, Path xsdFile, LoadProgress progress) throws Exception {
+        return readFiles(List.of(xmlFile), xsdFile, progress);
+    }
+
+    /** First half of {@link #loadDirectory}; see {@link #read}. */
+    public ParsedPool readDirectory(Path dir, Path xsdFile, LoadProgress progress) throws Exception {
+        List<Path> xml;
+        try (Stream<Path> s = Files.list(dir)) {
+            xml = s.filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xml"))
+                    .sorted()
+                    .toList();
+        }
+        if (xml.isEmpty()) throw new IOException("No .xml files in " + dir);
+        return readFiles(xml, xsdFile, progress);
+    }
 
-                t.getSubtasks().add(st);
+    private ParsedPool readFiles(List<Path> paths, Path xsdFile, LoadProgress progress) throws Exception {
+        long total = 0;
+        for (Path p : paths) total += Files.size(p);
+        Schema schema = xsdFile == null ? null : XmlFactories.schema(xsdFile);
+        return new ParsedPool(readAll(paths, schema, cache, new LoadCounter(progress, total)), schema);
+    }
+
+    /**
+     * Second half of a load (model thread): make {@code parsed} the loaded pool, after saving pending
+     * edits of the previous one and replaying the journals of the new files.
+     */
+    public LoadResult open(ParsedPool parsed) throws Exception {
+        Set<Path> rewritten = new HashSet<>();
+        for (PoolFile f : files) if (f.isDirty()) rewritten.add(f.path);
+        flush(); // pending edits belong to the previous pool
+        stopWatching();
+        for (PoolFile f : files) f.closeJournal();
+        files = List.of();
+        owners.clear();
+
+        Schema schema = parsed.schema;
+        this.schema = schema;
+        List<PoolFile> loaded = new ArrayList<>(parsed.files);
+        for (int i = 0; i < loaded.size(); i++) {
+            // read before the flush above wrote the pending edits (reopening the same pool): read it again
+            Path p = loaded.get(i).path;
+            if (rewritten.contains(p)) loaded.set(i, PoolFile.read(p, schema, cache, LOGGING_ERRORS));
+        }
+
+        int replayed = 0;
+        List<TaskModel> all = new ArrayList<>();
+        for (PoolFile f : loaded) {
+            int n = f.openJournal();
+            if (n > 0) {
+                System.err.println("[XML JOURNAL] Recovered " + n + " unsaved edits of " + f.path.getFileName());
+                f.changes++; // fold them into the file
+                replayed += n;
             }
+            for (TaskModel t : f.tasks) owners.put(t, f);
+            all.addAll(f.tasks);
+        }
+        files = loaded;
 
-            list.add(t);
+        ids.clear();
+        PointCombination.clearCache();
+        if (replayed > 0) autosave.markDirty();
+        try {
+            watcher = new PoolWatcher(getFiles(), EXTERNAL_CHANGE_DEBOUNCE, this::reloadChanged);
+        } catch (IOException e) {
+            System.err.println("[XML WATCH] External changes are not picked up: " + e.getMessage());
         }
-        return list;
+        return new LoadResult(all);
     }
 
-    private String getText(Element el) {
-        return el.getTextContent() == null ? "" : el.getTextContent();
+    private void stopWatching() {
+        if (watcher != null) watcher.close();
+        watcher = null;
     }
 
-    // ----- Helpers to access variants@group (subtask title) -----
+    /** Watcher thread: parse the changed files (unless it is our own save) and merge them on the model thread. */
+    private void reloadChanged(Set<Path> changed) {
+        if (externalListener == null) return;
+        for (PoolFile f : files) {
+            if (changed.contains(f.path.toAbsolutePath().normalize())) reload(f);
+        }
+    }
 
-    /** Read the variants@group (subtask title) of a subtask. */
-    public String readSubtaskGroup(SubtaskModel st) {
-        Element eSub = st.getDom();
-        NodeList vars = eSub.getElementsByTagName("variants");
-        if (vars.getLength() > 0) {
-            Element eVars = (Element) vars.item(0);
-            return eVars.getAttribute("group");
+    /** Parse {@code f} if it differs from what we last read or wrote, and merge it on the model thread (any thread). */
+    private void reload(PoolFile f) {
+        PoolFile parsed;
+        try {
+            if (Arrays.equals(PoolFile.hash(f.path), f.sha256)) return; // written by us, or touched only
+            parsed = PoolFile.read(f.path, schema, cache, LOGGING_ERRORS);
+        } catch (Exception e) {
+            modelThread.execute(() -> {
+                ExternalChangeListener l = externalListener;
+                if (l != null && files.contains(f)) l.failed(f.path, e);
+            });
+            return;
         }
-        return "";
+        modelThread.execute(() -> mergeExternal(f, parsed));
     }
 
-    /** Update the variants@group (subtask title) and autosave. */
-    public void updateSubtaskGroup(SubtaskModel st, String group) {
-        Element eSub = st.getDom();
-        Element eVars;
-        NodeList vars = eSub.getElementsByTagName("variants");
-        if (vars.getLength() > 0) {
-            eVars = (Element) vars.item(0);
+    /**
+     * Three-way merge per task id (model thread): the last read or written version is the base, so a
+     * task changed only in the file is taken over, one changed on both sides (and differently) is a conflict.
+     * Without a listener (only reached from a save that found the file changed) conflicts keep the local version.
+     */
+    private void mergeExternal(PoolFile f, PoolFile parsed) {
+        ExternalChangeListener l = externalListener;
+        if (!files.contains(f)) return; // another pool was loaded meanwhile
+        Map<String, PoolWriter.Task> base = f.base;
+        Map<String, PoolWriter.Task> local = PoolFile.byId(PoolWriter.snapshot(f.tasks));
+        Map<String, PoolWriter.Task> external = parsed.base;
+        Map<String, TaskModel> localModels = new HashMap<>();
+        for (TaskModel t : f.tasks) localModels.put(t.getId(), t);
+        Map<String, TaskModel> externalModels = new HashMap<>();
+        for (TaskModel t : parsed.tasks) externalModels.put(t.getId(), t);
+
+        List<Replacement> applied = new ArrayList<>();
+        List<Replacement> conflicts = new ArrayList<>();
+        Set<String> taskIds = new LinkedHashSet<>(external.keySet());
+        taskIds.addAll(base.keySet());
+        for (String id : taskIds) {
+            PoolWriter.Task e = external.get(id);
+            PoolWriter.Task b = base.get(id);
+            PoolWriter.Task mine = local.get(id);
+            if (Objects.equals(e, b) || Objects.equals(e, mine)) continue; // unchanged in the file, or same edit
+            Replacement r = new Replacement(f.path, localModels.get(id), externalModels.get(id));
+            if (r.before() == null && r.after() == null) continue; // deleted on both sides
+            if (Objects.equals(mine, b)) {
+                replace(f, r, parsed.tasks);
+                applied.add(r);
+            } else {
+                conflicts.add(r);
+            }
+        }
+        f.sha256 = parsed.sha256;
+        f.base = parsed.base;
+        if (!applied.isEmpty()) ids.clear(); // the file may have taken ids the allocator handed out before
+        // a snapshot taken before the merge would write the file without the merged tasks: rewrite after it
+        if (!applied.isEmpty() && f.snapshotted > f.written) f.changes++;
+        if (f.isDirty()) autosave.markDirty(); // also retries a save skipped because of this change
+        if (l != null && (!applied.isEmpty() || !conflicts.isEmpty())) l.changed(new ExternalChange(f.path, List.copyOf(applied), List.copyOf(conflicts)));
+    }
+
+    /** Resolve a conflict with the file's version of the task (model thread); false if it no longer applies. */
+    public boolean acceptExternal(Replacement r) {
+        PoolFile f = fileOf(r.file());
+        if (f == null || (r.before() != null && !f.tasks.contains(r.before()))) return false;
+        replace(f, r, List.of());
+        ids.clear();
+        f.changes++; // rewrite, so the journaled local edits are dropped
+        autosave.markDirty();
+        return true;
+    }
+
+    /** Resolve a conflict with the local version of the task; it overwrites the file's version on the next save. */
+    public void keepLocal(Replacement r) {
+        PoolFile f = fileOf(r.file());
+        if (f == null) return;
+        f.changes++;
+        autosave.markDirty();
+    }
+
+    private PoolFile fileOf(Path path) {
+        for (PoolFile f : files) if (f.path.equals(path)) return f;
+        return null;
+    }
+
+    /**
+     * Swap one task model in the file. An added task goes after the nearest preceding task of
+     * {@code order} (the external file) that exists locally, or to the end if it is not in {@code order}.
+     */
+    private void replace(PoolFile f, Replacement r, List<TaskModel> order) {
+        if (r.before() != null) {
+            int i = f.tasks.indexOf(r.before());
+            PointCombination.invalidate(r.before());
+            owners.remove(r.before());
+            if (r.after() != null) f.tasks.set(i, r.after());
+            else f.tasks.remove(i);
         } else {
-            eVars = eSub.getOwnerDocument().createElement("variants");
-            eSub.appendChild(eVars);
+            int k = order.indexOf(r.after());
+            int at = k < 0 ? f.tasks.size() : 0;
+            for (int j = k - 1; j >= 0 && at == 0; j--) {
+                String prev = order.get(j).getId();
+                for (int i = 0; i < f.tasks.size(); i++) {
+                    if (f.tasks.get(i).getId().equals(prev)) { at = i + 1; break; }
+                }
+            }
+            f.tasks.add(at, r.after());
         }
-        if (group == null) group = "";
-        eVars.setAttribute("group", group);
-        save();
+        if (r.after() != null) owners.put(r.after(), f);
+    }
+
+    /** Read the files, in parallel on a bounded pool if there are several; fails with the first error in file order. */
+    private static List<PoolFile> readAll(List<Path> paths, Schema schema, SnapshotCache cache,
+                                          LoadCounter progress) throws Exception {
+        if (paths.size() == 1) return List.of(PoolFile.read(paths.get(0), schema, cache, LOGGING_ERRORS, progress));
+        int threads = Math.min(paths.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService exec = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "xml-load");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<PoolFile>> futures = new ArrayList<>(paths.size());
+            for (Path p : paths) futures.add(exec.submit(() -> PoolFile.read(p, schema, cache, LOGGING_ERRORS, progress)));
+            List<PoolFile> out = new ArrayList<>(paths.size());
+            for (Future<PoolFile> f : futures) {
+                try {
+                    out.add(f.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception cause) throw cause;
+                    throw e;
+                }
+            }
+            return out;
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    /** Logs parse/validation problems; errors abort the load. */
+    private static final ErrorHandler LOGGING_ERRORS = new ErrorHandler() {
+        private String where(SAXParseException e) {
+            String file = e.getSystemId() == null ? "" : e.getSystemId().substring(e.getSystemId().lastIndexOf('/') + 1) + " ";
+            return "(" + file + "line " + e.getLineNumber() + ", col " + e.getColumnNumber() + ")";
+        }
+        @Override public void warning(SAXParseException e) {
+            System.err.println("[XML WARNING] " + where(e) + " " + e.getMessage());
+        }
+        @Override public void error(SAXParseException e) throws SAXException {
+            System.err.println("[XML ERROR] " + where(e) + " " + e.getMessage());
+            throw e;
+        }
+        @Override public void fatalError(SAXParseException e) throws SAXException {
+            System.err.println("[XML FATAL] " + where(e) + " " + e.getMessage());
+            throw e;
+        }
+    };
+
+    // ----- Helpers to access variants@group (subtask title) -----
+
+    /** Update the variants@group (subtask title, {@link SubtaskModel#getGroup()}) and autosave. */
+    public void updateSubtaskGroup(SubtaskModel st, String group) {
+        st.setGroup(group);
+        save(st.getParent(), j -> j.subtaskGroup(st));
     }
 
     // --- Autosave updates for other fields ---
 
     public void updateTaskTitle(TaskModel t) {
-        t.getDom().setAttribute("title", t.getTitle());
-        save();
+        save(t, j -> j.taskTitle(t));
     }
 
     public void updateSubtaskMeta(SubtaskModel st) {
-        st.getDom().setAttribute("points", st.getPoints().stripTrailingZeros().toPlainString());
-        st.getDom().setAttribute("difficulty", st.getDifficulty().toString());
-        st.getDom().setAttribute("eligibility", st.getEligibility().toString());
-        save();
+        PointCombination.subtaskChanged(st);
+        save(st.getParent(), j -> j.subtaskMeta(st));
     }
 
-    public void updateVariant(VariantModel v) {
-        Element e = v.getDom();
-        NodeList nText = e.getElementsByTagName("text");
-        Element eText = (Element) (nText.getLength() == 0 ? e.appendChild(e.getOwnerDocument().createElement("text")) : nText.item(0));
-        eText.setTextContent(v.getText());
-
-        NodeList nSol = e.getElementsByTagName("solution");
-        Element eSol = (Element) (nSol.getLength() == 0 ? e.appendChild(e.getOwnerDocument().createElement("solution")) : nSol.item(0));
-        eSol.setTextContent(v.getSolution() == null ? "" : v.getSolution());
-
-        save();
+    public void updateVariant(SubtaskModel sub, VariantModel v) {
+        save(sub.getParent(), j -> j.variant(sub, v));
     }
 
     // ====== NEW: create/delete APIs for tasks, subtasks, variants ======
 
-    /** Create a new task with a 4-digit id and empty body. Returns the created TaskModel. */
+    /**
+     * Create a new task with the next free id (at least 4 digits) in the last file of the pool. It
+     * starts with one default subtask (and one empty variant), as the schema requires at least one.
+     * Returns the created TaskModel.
+     */
     public Optional<TaskModel> addTask(String title) {
-        if (doc == null) return Optional.empty();
-        Element root = doc.getDocumentElement(); // <tasks>
-        String nextId = nextId4(root, "task");
-        Element eTask = doc.createElement("task");
-        eTask.setAttribute("id", nextId);
-        eTask.setAttribute("title", title == null ? "" : title);
-        root.appendChild(eTask);
-
-        TaskModel tm = new TaskModel(eTask, nextId, title);
-        save();
+        if (files.isEmpty()) return Optional.empty();
+        PoolFile f = files.get(files.size() - 1);
+        TaskModel tm = new TaskModel(ids.next(f, f.tasks, TaskModel::getId), title == null ? "" : title);
+        tm.getSubtasks().add(newSubtask(tm));
+        f.tasks.add(tm);
+        owners.put(tm, f);
+        save(tm, j -> j.addTask(tm));
         return Optional.of(tm);
     }
 
     /** Delete a task including all its subtasks. */
     public boolean deleteTask(TaskModel t) {
-        try {
-            Element eTask = t.getDom();
-            eTask.getParentNode().removeChild(eTask);
-            save();
-            return true;
-        } catch (Exception ex) {
-            System.err.println("[XML DELETE TASK] " + ex.getMessage());
+        PoolFile f = owners.get(t);
+        if (f == null || !f.tasks.remove(t)) {
+            System.err.println("[XML DELETE TASK] Task " + t.getId() + " is not part of the loaded pool");
             return false;
         }
+        PointCombination.invalidate(t);
+        save(t, j -> j.deleteTask(t));
+        owners.remove(t);
+        return true;
     }
 
     /** Create a subtask under given task with default meta and one empty variant. */
     public Optional<SubtaskModel> addSubtask(TaskModel task) {
-        try {
-            Element eTask = task.getDom();
-            Document d = eTask.getOwnerDocument();
-
-            String sid = nextId4(eTask, "subtask");
-            Element eSub = d.createElement("subtask");
-            eSub.setAttribute("id", sid);
-            eSub.setAttribute("points", "1");
-            eSub.setAttribute("difficulty", Difficulty.EASY.toString());
-            eSub.setAttribute("eligibility", Eligibility.BOTH.toString());
-
-            Element eVars = d.createElement("variants");
-            eSub.appendChild(eVars);
-
-            String vid = "0001";
-            Element eVar = d.createElement("variant");
-            eVar.setAttribute("id", vid);
-            Element eText = d.createElement("text");
-            eText.setTextContent("");
-            Element eSol = d.createElement("solution");
-            eSol.setTextContent("");
-            eVar.appendChild(eText);
-            eVar.appendChild(eSol);
-            eVars.appendChild(eVar);
-
-            eTask.appendChild(eSub);
-
-            SubtaskModel st = new SubtaskModel(eSub, task, sid, new BigDecimal("1"), Difficulty.EASY, Eligibility.BOTH);
-            VariantModel vm = new VariantModel(eVar, vid, "", "");
-            st.getVariants().add(vm);
-            task.getSubtasks().add(st);
-
-            save();
-            return Optional.of(st);
-        } catch (Exception ex) {
-            System.err.println("[XML ADD SUBTASK] " + ex.getMessage());
-            return Optional.empty();
-        }
+        SubtaskModel st = newSubtask(task);
+        task.getSubtasks().add(st);
+        PointCombination.subtaskChanged(st);
+        save(task, j -> j.addSubtask(st));
+        return Optional.of(st);
     }
 
-    /** Delete a subtask node. */
+    /** Delete a subtask; the last subtask of a task is kept (the schema requires one). */
     public boolean deleteSubtask(TaskModel task, SubtaskModel st) {
-        try {
-            Element eSub = st.getDom();
-            eSub.getParentNode().removeChild(eSub);
-            save();
-            return true;
-        } catch (Exception ex) {
-            System.err.println("[XML DELETE SUBTASK] " + ex.getMessage());
+        if (task.getSubtasks().size() <= 1) {
+            System.err.println("[XML DELETE SUBTASK] Task " + task.getId() + " needs at least one subtask");
             return false;
         }
+        task.getSubtasks().remove(st);
+        PointCombination.subtaskRemoved(st);
+        save(task, j -> j.deleteSubtask(st));
+        return true;
     }
 
     /** Create a new variant under given subtask. */
     public Optional<VariantModel> addVariant(SubtaskModel sub) {
-        try {
-            Element eSub = sub.getDom();
-            Document d = eSub.getOwnerDocument();
-
-            Element eVars = ensureVariants(eSub);
-
-            String vid = nextId4(eVars, "variant");
-            Element eVar = d.createElement("variant");
-            eVar.setAttribute("id", vid);
-            Element eText = d.createElement("text");
-            eText.setTextContent("");
-            Element eSol = d.createElement("solution");
-            eSol.setTextContent("");
-            eVar.appendChild(eText);
-            eVar.appendChild(eSol);
-
-            eVars.appendChild(eVar);
-
-            VariantModel vm = new VariantModel(eVar, vid, "", "");
-            sub.getVariants().add(vm);
-
-            save();
-            return Optional.of(vm);
-        } catch (Exception ex) {
-            System.err.println("[XML ADD VARIANT] " + ex.getMessage());
-            return Optional.empty();
-        }
+        VariantModel vm = new VariantModel(ids.next(sub, sub.getVariants(), VariantModel::getId), "", "");
+        sub.getVariants().add(vm);
+        save(sub.getParent(), j -> j.addVariant(sub, vm));
+        return Optional.of(vm);
     }
 
-    /** Delete a variant node. */
+    /** Delete a variant; the last variant of a subtask is kept (the schema requires one). */
     public boolean deleteVariant(SubtaskModel sub, VariantModel v) {
-        try {
-            Element eVar = v.getDom();
-            eVar.getParentNode().removeChild(eVar);
-            save();
-            return true;
-        } catch (Exception ex) {
-            System.err.println("[XML DELETE VARIANT] " + ex.getMessage());
+        if (sub.getVariants().size() <= 1) {
+            System.err.println("[XML DELETE VARIANT] Subtask " + sub.getId() + " needs at least one variant");
             return false;
         }
+        sub.getVariants().remove(v);
+        save(sub.getParent(), j -> j.deleteVariant(sub, v));
+        return true;
     }
 
-    private Element ensureVariants(Element eSub) {
-        NodeList vars = eSub.getElementsByTagName("variants");
-        if (vars.getLength() > 0) return (Element) vars.item(0);
-        Element eVars = eSub.getOwnerDocument().createElement("variants");
-        eSub.appendChild(eVars);
-        return eVars;
+    /** Subtask with the next free id, default meta (1 point, EASY, BOTH) and one empty variant. */
+    private SubtaskModel newSubtask(TaskModel task) {
+        SubtaskModel st = new SubtaskModel(task, ids.next(task, task.getSubtasks(), SubtaskModel::getId),
+                BigDecimal.ONE, Difficulty.EASY, Eligibility.BOTH);
+        st.getVariants().add(new VariantModel(ids.next(st, st.getVariants(), VariantModel::getId), "", ""));
+        return st;
     }
 
-    /** Compute next 4-digit id for direct children with given tag (e.g., "task", "subtask", "variant"). */
-    private String nextId4(Element parent, String tag) {
-        int max = 0;
-        NodeList list = parent.getElementsByTagName(tag);
-        for (int i = 0; i < list.getLength(); i++) {
-            Element e = (Element) list.item(i);
-            if (!e.getParentNode().isSameNode(parent)) continue; // only direct children
-            String s = e.getAttribute("id");
+    /** Journal the edit of {@code task}'s file (durable right away; in a batch at commit) and schedule the rewrite of that file. */
+    private void save(TaskModel task, Consumer<EditJournal> edit) {
+        PoolFile f = owners.get(task);
+        if (f == null) return;
+        if (batch != null) {
+            batch.add(f, edit);
+            return;
+        }
+        if (f.journal != null) edit.accept(f.journal);
+        f.changes++;
+        autosave.markDirty();
+    }
+
+    /** Autosaves skipped while a batch was open are due again once it is closed. */
+    private void rescheduleIfDirty() {
+        for (PoolFile f : files) {
+            if (f.isDirty()) {
+                autosave.markDirty();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Immutable copy of the changed files (model thread), so the writer never reads models that are being edited.
+     * Null while a batch is open: its edits are already in the models but may still be rolled back.
+     */
+    private Snapshot snapshot() {
+        if (batch != null) return null;
+        List<FileSnapshot> changed = new ArrayList<>();
+        for (PoolFile f : files) {
+            if (!f.isDirty()) continue;
+            changed.add(new FileSnapshot(f, f.changes, PoolWriter.snapshot(f.tasks),
+                    f.journal, f.journal == null ? 0 : f.journal.mark()));
+            f.snapshotted = f.changes;
+        }
+        return changed.isEmpty() ? null : new Snapshot(List.copyOf(changed), schema);
+    }
+
+    /** Rewrite each changed file (writer thread); the first failure is rethrown after all were tried. */
+    private void write(Snapshot s) throws Exception {
+        Exception failure = null;
+        for (FileSnapshot fs : s.files()) {
             try {
-                int n = Integer.parseInt(s);
-                if (n > max) max = n;
-            } catch (NumberFormatException ignored) {}
+                write(fs, s.schema());
+            } catch (Exception e) {
+                System.err.println("[XML SAVE ERROR] " + fs.file().path.getFileName() + ": " + e.getMessage());
+                if (failure == null) failure = e;
+            }
         }
-        int next = max + 1;
-        return String.format("%04d", next);
+        if (failure != null) throw failure;
     }
 
-    private void save() {
-        if (doc == null || currentFile == null) return;
+    /** Validated, atomic replace of one file; see {@link PoolWriter} and {@link AtomicFileWriter}. */
+    private void write(FileSnapshot fs, Schema schema) throws Exception {
+        PoolFile f = fs.file();
+        long start = System.nanoTime();
+        AtomicFileWriter.Result r;
         try {
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer t = tf.newTransformer();
-            t.setOutputProperty(ENCODING, "UTF-8");
-            t.setOutputProperty(INDENT, "yes");
-            t.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-            t.transform(new DOMSource(doc), new StreamResult(currentFile.toFile()));
-        } catch (TransformerException e) {
-            System.err.println("[XML SAVE ERROR] " + e.getMessage());
-            e.printStackTrace();
+            r = AtomicFileWriter.write(f.path, backups, f.sha256,
+                    out -> PoolWriter.write(out, fs.tasks(), schema));
+            if (r.stale()) {
+                // changed by another program since we read it: merge first, the file stays dirty
+                System.err.println("[XML WATCH] " + f.path.getFileName() + " changed on disk; merging before saving");
+                reload(f);
+                return;
+            }
+            f.sha256 = r.sha256();
+            f.base = PoolFile.byId(fs.tasks());
+            f.written = Math.max(f.written, fs.changes());
+            if (!r.replaced()) metrics.recordUnchanged();
+            metrics.recordSave(System.nanoTime() - start, r.bytes());
+        } catch (Exception e) {
+            metrics.recordFailure();
+            throw e;
+        }
+        SnapshotCache c = cache;
+        if (c != null && r.replaced()) {
+            try {
+                c.storeAsync(SnapshotCache.Key.of(f.path), r.sha256(), schema != null, fs.tasks());
+            } catch (IOException e) {
+                System.err.println("[XML CACHE] " + e.getMessage());
+            }
+        }
+        if (fs.journal() != null) {
+            try {
+                fs.journal().compact(fs.journalMark());
+            } catch (IOException e) {
+                // the file is saved; the stale records are idempotent and only replayed once more
+                System.err.println("[XML JOURNAL] Compaction failed: " + e.getMessage());
+            }
         }
     }
-}
\ No newline at end of file
+}